@@ -2,7 +2,34 @@ public abstract class AbstractCalculator {
 
     public abstract double calculate(double a, double b);
 
+    public void calculate(double[] a, double[] b, double[] out) {
+        if (a.length != b.length || a.length != out.length) {
+            throw new IllegalArgumentException("Array lengths differ: " + a.length + ", " + b.length + ", " + out.length);
+        }
+        calculate(a, 0, b, 0, out, 0, a.length);
+    }
+
+    public void calculate(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        checkRange(a, aOffset, length);
+        checkRange(b, bOffset, length);
+        checkRange(out, outOffset, length);
+        calculateRange(a, aOffset, b, bOffset, out, outOffset, length);
+    }
+
+    // Bounds are already checked; subclasses override this with a loop the JIT can vectorize
+    protected void calculateRange(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = calculate(a[aOffset + i], b[bOffset + i]);
+        }
+    }
+
     public String getType() {
         return "Abstract Calculator";
     }
+
+    private static void checkRange(double[] array, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > array.length - length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length + ") out of bounds for length " + array.length);
+        }
+    }
 }
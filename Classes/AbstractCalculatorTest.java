@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+public class AbstractCalculatorTest {
+
+    public static void test() {
+        testWholeArrays();
+        testRangesWithOffsets();
+        testDefaultRangeUsesScalarCalculate();
+        testInvalidRanges();
+    }
+
+    private static void testWholeArrays() {
+        double[] a = {1, 2, 3};
+        double[] b = {4, 5, 0.5};
+        double[] out = new double[3];
+        new AdditionCalculator().calculate(a, b, out);
+        checkArray(new double[]{5, 7, 3.5}, out, "addition");
+        new MultiplicationCalculator().calculate(a, b, out);
+        checkArray(new double[]{4, 10, 1.5}, out, "multiplication");
+    }
+
+    // Only the requested slice of out is written
+    private static void testRangesWithOffsets() {
+        double[] a = {9, 1, 2, 3};
+        double[] b = {10, 20, 9, 9};
+        double[] out = {-1, -1, -1, -1};
+        new AdditionCalculator().calculate(a, 1, b, 0, out, 2, 2);
+        checkArray(new double[]{-1, -1, 11, 22}, out, "addition range");
+        new MultiplicationCalculator().calculate(a, 3, b, 3, out, 0, 1);
+        checkArray(new double[]{27, -1, 11, 22}, out, "multiplication range");
+        new AdditionCalculator().calculate(a, 4, b, 4, out, 4, 0);
+        checkArray(new double[]{27, -1, 11, 22}, out, "empty range at the end");
+    }
+
+    private static void testDefaultRangeUsesScalarCalculate() {
+        AbstractCalculator subtraction = new AbstractCalculator() {
+            @Override
+            public double calculate(double a, double b) {
+                return a - b;
+            }
+        };
+        double[] out = new double[2];
+        subtraction.calculate(new double[]{5, 0, 1}, 1, new double[]{1, 2}, 0, out, 0, 2);
+        checkArray(new double[]{-1, -1}, out, "subclass without calculateRange");
+    }
+
+    private static void testInvalidRanges() {
+        AbstractCalculator calculator = new AdditionCalculator();
+        double[] three = new double[3];
+        double[] two = new double[2];
+        TestSupport.expect(IllegalArgumentException.class, () -> calculator.calculate(three, two, three));
+        TestSupport.expect(IllegalArgumentException.class, () -> calculator.calculate(three, three, two));
+        TestSupport.expect(IndexOutOfBoundsException.class,
+                () -> calculator.calculate(three, 2, three, 0, three, 0, 2));
+        TestSupport.expect(IndexOutOfBoundsException.class,
+                () -> calculator.calculate(three, 0, three, -1, three, 0, 1));
+        TestSupport.expect(IndexOutOfBoundsException.class,
+                () -> calculator.calculate(three, 0, three, 0, three, 0, -1));
+        // offset + length would overflow int
+        TestSupport.expect(IndexOutOfBoundsException.class,
+                () -> calculator.calculate(three, Integer.MAX_VALUE, three, 0, three, 0, 2));
+    }
+
+    private static void checkArray(double[] expected, double[] actual, String what) {
+        TestSupport.check(Arrays.equals(expected, actual), what + ": " + Arrays.toString(actual));
+    }
+}
@@ -0,0 +1,38 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Runs every XTest class in turn; pass class names to run only those
+public class AllTests {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, TestSupport.Action> tests = new LinkedHashMap<>();
+        tests.put("DigitCounterTest", DigitCounterTest::test);
+        tests.put("AbstractCalculatorTest", AbstractCalculatorTest::test);
+        tests.put("CalculatorTest", CalculatorTest::test);
+        tests.put("CommandHistoryTest", CommandHistoryTest::test);
+        tests.put("ConcurrentCommandHistoryTest", ConcurrentCommandHistoryTest::test);
+        tests.put("ParallelProcessingTest", ParallelProcessingTest::test);
+        tests.put("StreamingStatisticsTest", StreamingStatisticsTest::test);
+        tests.put("QuantileSketchTest", QuantileSketchTest::test);
+        tests.put("ResultColumnsTest", ResultColumnsTest::test);
+        tests.put("ResultCodecTest", ResultCodecTest::test);
+        tests.put("MappedResultStoreTest", MappedResultStoreTest::test);
+        tests.put("ResultJournalTest", ResultJournalTest::test);
+        tests.put("ResultArchiveTest", ResultArchiveTest::test);
+        tests.put("TaskQueueTest", TaskQueueTest::test);
+        tests.put("RingBufferQueueTest", RingBufferQueueTest::test);
+        tests.put("CalculatorFactoryTest", CalculatorFactoryTest::test);
+        tests.put("CachingCalculatorTest", CachingCalculatorTest::test);
+        tests.put("ExpressionTest", ExpressionTest::test);
+
+        List<String> selected = Arrays.asList(args);
+        for (Map.Entry<String, TestSupport.Action> test : tests.entrySet()) {
+            if (selected.isEmpty() || selected.contains(test.getKey())) {
+                test.getValue().run();
+                System.out.println(test.getKey() + " passed");
+            }
+        }
+    }
+}
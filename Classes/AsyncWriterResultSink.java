@@ -0,0 +1,85 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Formats and writes results on a background worker in batches, so callers never wait on the Writer.
+// Results are written as "Result: x" / "Undo: x" lines and the writer is flushed once per batch.
+// Results published after close() are dropped: the calculator has already recorded the operation by
+// then, so failing here would leave it half-done.
+public class AsyncWriterResultSink implements ResultSink, Closeable {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    private final Writer writer;
+    private final TaskQueue<Event> queue;
+    private final StringBuilder text = new StringBuilder();
+    private volatile boolean closed;
+
+    public AsyncWriterResultSink(Writer writer) {
+        this(writer, DEFAULT_CAPACITY, TaskQueue.OverflowPolicy.BLOCK);
+    }
+
+    // Capacity must be a power of two; DROP trades completeness for never blocking the caller
+    public AsyncWriterResultSink(Writer writer, int capacity, TaskQueue.OverflowPolicy overflowPolicy) {
+        this.writer = writer;
+        this.queue = new TaskQueue<>(1, new RingBufferQueue<>(capacity), overflowPolicy, this::write,
+                MAX_BATCH_SIZE, 0);
+    }
+
+    @Override
+    public void publish(double result) {
+        enqueue(new Event(result, false));
+    }
+
+    @Override
+    public void publishUndo(double result) {
+        enqueue(new Event(result, true));
+    }
+
+    // Writes everything already published, then stops the worker; the writer itself is left open
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        queue.shutdown();
+        try {
+            queue.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.flush();
+    }
+
+    private void enqueue(Event event) {
+        if (closed) {
+            return;
+        }
+        try {
+            queue.addTask(event);
+        } catch (IllegalStateException e) {
+            // Closed between the check and the add
+        }
+    }
+
+    private void write(List<Event> batch) throws IOException {
+        text.setLength(0);
+        for (Event event : batch) {
+            text.append(event.undo ? "Undo: " : "Result: ").append(event.result).append(System.lineSeparator());
+        }
+        writer.append(text);
+        writer.flush();
+    }
+
+    private static class Event {
+
+        final double result;
+        final boolean undo;
+
+        Event(double result, boolean undo) {
+            this.result = result;
+            this.undo = undo;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Memoizes another calculator's results in a bounded, set-associative cache.
+// Entries are keyed on the raw bits of both operands, so nothing is boxed; each set holds WAYS entries
+// and evicts its least recently used one. Sets are guarded by striped locks and the delegate is called
+// outside any lock, so a slow calculation never blocks lookups in other sets.
+// Only worth it for delegates that are more expensive than a lookup; a plain add is not.
+public class CachingCalculator extends AbstractCalculator {
+
+    private static final int WAYS = 4;
+    private static final int MAX_STRIPES = 64;
+
+    private final AbstractCalculator delegate;
+    private final long ttlNanos; // 0 means entries never expire
+    private final int setMask;
+    private final Object[] locks;
+
+    // Entry i of set s lives at index s * WAYS + i
+    private final long[] keysA;
+    private final long[] keysB;
+    private final double[] values;
+    private final long[] lastUsed; // 0 marks an empty slot
+    private final long[] writtenAt;
+    private final long[] clocks; // LRU clock per stripe, only read and bumped under that stripe's lock
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public CachingCalculator(AbstractCalculator delegate, int maximumSize) {
+        this(delegate, maximumSize, 0, TimeUnit.NANOSECONDS);
+    }
+
+    // maximumSize is rounded up to a power of two multiple of the set size; ttl <= 0 disables expiry
+    public CachingCalculator(AbstractCalculator delegate, int maximumSize, long ttl, TimeUnit unit) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate calculator is required");
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.delegate = delegate;
+        this.ttlNanos = ttl > 0 ? unit.toNanos(ttl) : 0;
+        int minimumSets = (maximumSize + WAYS - 1) / WAYS;
+        if (minimumSets > (1 << 26)) {
+            throw new IllegalArgumentException("Maximum size too large: " + maximumSize);
+        }
+        int sets = minimumSets == 1 ? 1 : Integer.highestOneBit(minimumSets - 1) << 1;
+        this.setMask = sets - 1;
+        this.locks = new Object[Math.min(sets, MAX_STRIPES)];
+        this.clocks = new long[locks.length];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        int capacity = sets * WAYS;
+        this.keysA = new long[capacity];
+        this.keysB = new long[capacity];
+        this.values = new double[capacity];
+        this.lastUsed = new long[capacity];
+        this.writtenAt = new long[capacity];
+    }
+
+    @Override
+    public double calculate(double a, double b) {
+        long bitsA = Double.doubleToRawLongBits(a);
+        long bitsB = Double.doubleToRawLongBits(b);
+        int set = setIndex(bitsA, bitsB);
+        int base = set * WAYS;
+        long now = ttlNanos > 0 ? System.nanoTime() : 0;
+        int stripe = set % locks.length;
+
+        synchronized (locks[stripe]) {
+            for (int i = base; i < base + WAYS; i++) {
+                if (lastUsed[i] != 0 && keysA[i] == bitsA && keysB[i] == bitsB) {
+                    if (ttlNanos > 0 && now - writtenAt[i] >= ttlNanos) {
+                        lastUsed[i] = 0;
+                        expirations.increment();
+                        break;
+                    }
+                    lastUsed[i] = ++clocks[stripe];
+                    hits.increment();
+                    return values[i];
+                }
+            }
+        }
+
+        misses.increment();
+        double result = delegate.calculate(a, b); // Exceptions propagate and nothing is cached
+
+        synchronized (locks[stripe]) {
+            int victim = base;
+            for (int i = base; i < base + WAYS; i++) {
+                if (lastUsed[i] != 0 && keysA[i] == bitsA && keysB[i] == bitsB) {
+                    victim = i; // Another thread cached it meanwhile; just refresh
+                    break;
+                }
+                if (lastUsed[i] < lastUsed[victim]) {
+                    victim = i;
+                }
+            }
+            if (lastUsed[victim] != 0 && (keysA[victim] != bitsA || keysB[victim] != bitsB)) {
+                evictions.increment();
+            }
+            keysA[victim] = bitsA;
+            keysB[victim] = bitsB;
+            values[victim] = result;
+            lastUsed[victim] = ++clocks[stripe];
+            writtenAt[victim] = now;
+        }
+        return result;
+    }
+
+    public void invalidateAll() {
+        for (int stripe = 0; stripe < locks.length; stripe++) {
+            synchronized (locks[stripe]) {
+                for (int set = stripe; set <= setMask; set += locks.length) {
+                    Arrays.fill(lastUsed, set * WAYS, set * WAYS + WAYS, 0L);
+                }
+            }
+        }
+    }
+
+    public AbstractCalculator getDelegate() {
+        return delegate;
+    }
+
+    public int getCapacity() {
+        return keysA.length;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String getType() {
+        return delegate.getType();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingCalculator[" + delegate.getType() + ", capacity=" + getCapacity() + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    // Raw bits keep 0.0 and -0.0 apart, which matters for operations like division
+    private int setIndex(long bitsA, long bitsB) {
+        long h = bitsA * 0x9E3779B97F4A7C15L + bitsB;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h & setMask;
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.concurrent.TimeUnit;
+
+public class CachingCalculatorTest {
+
+    public static void test() throws InterruptedException {
+        testHitsAndMisses();
+        testLeastRecentlyUsedEviction();
+        testExpiration();
+        testSignedZerosAreDistinct();
+        testExceptionsAreNotCached();
+        testInvalidArguments();
+        testConcurrentCallers();
+    }
+
+    private static void testHitsAndMisses() {
+        CountingCalculator delegate = new CountingCalculator();
+        CachingCalculator cache = new CachingCalculator(delegate, 10);
+        TestSupport.check(cache.getCapacity() == 16, "capacity rounds up to a power of two: " + cache.getCapacity());
+        TestSupport.check(cache.calculate(2, 3) == 5 && cache.calculate(2, 3) == 5,
+                "cached result matches the delegate");
+        TestSupport.check(cache.calculate(3, 2) == 5, "swapped operands are a different key");
+        TestSupport.check(delegate.calls == 2, "delegate called once per key: " + delegate.calls);
+        TestSupport.check(cache.getHitCount() == 1 && cache.getMissCount() == 2, "hit and miss counts");
+        TestSupport.check(cache.getHitRate() == 1.0 / 3, "hit rate " + cache.getHitRate());
+        TestSupport.check(cache.getType().equals(delegate.getType()), "type comes from the delegate");
+
+        double[] out = new double[2];
+        cache.calculate(new double[]{2, 3}, new double[]{3, 2}, out);
+        TestSupport.check(out[0] == 5 && out[1] == 5 && delegate.calls == 2,
+                "array calculation goes through the cache");
+
+        cache.invalidateAll();
+        cache.calculate(2, 3);
+        TestSupport.check(delegate.calls == 3, "invalidateAll forgets every entry");
+    }
+
+    // A maximum size of 4 is a single 4-way set, so the fifth key evicts the least recently used one
+    private static void testLeastRecentlyUsedEviction() {
+        CountingCalculator delegate = new CountingCalculator();
+        CachingCalculator cache = new CachingCalculator(delegate, 4);
+        for (int key = 0; key < 4; key++) {
+            cache.calculate(key, 0);
+        }
+        cache.calculate(0, 0); // Key 1 is now the least recently used
+        cache.calculate(4, 0);
+        TestSupport.check(cache.getEvictionCount() == 1, "evictions " + cache.getEvictionCount());
+        int calls = delegate.calls;
+        cache.calculate(0, 0);
+        cache.calculate(2, 0);
+        cache.calculate(3, 0);
+        cache.calculate(4, 0);
+        TestSupport.check(delegate.calls == calls, "recently used keys survive the eviction");
+        cache.calculate(1, 0);
+        TestSupport.check(delegate.calls == calls + 1, "least recently used key was evicted");
+    }
+
+    private static void testExpiration() throws InterruptedException {
+        CountingCalculator delegate = new CountingCalculator();
+        CachingCalculator cache = new CachingCalculator(delegate, 8, 20, TimeUnit.MILLISECONDS);
+        cache.calculate(1, 1);
+        cache.calculate(1, 1);
+        TestSupport.check(delegate.calls == 1, "fresh entry is served from the cache");
+        Thread.sleep(50);
+        cache.calculate(1, 1);
+        TestSupport.check(delegate.calls == 2 && cache.getExpirationCount() == 1, "expired entry is recalculated");
+    }
+
+    // Division tells 0.0 and -0.0 apart, so the cache has to as well
+    private static void testSignedZerosAreDistinct() {
+        AbstractCalculator division = new AbstractCalculator() {
+            @Override
+            public double calculate(double a, double b) {
+                return a / b;
+            }
+        };
+        CachingCalculator cache = new CachingCalculator(division, 16);
+        TestSupport.check(cache.calculate(1, 0.0) == Double.POSITIVE_INFINITY, "1 / 0.0");
+        TestSupport.check(cache.calculate(1, -0.0) == Double.NEGATIVE_INFINITY,
+                "1 / -0.0 is not served from the 0.0 entry");
+        TestSupport.check(cache.getMissCount() == 2, "signed zeros are separate keys");
+    }
+
+    private static void testExceptionsAreNotCached() {
+        CountingCalculator delegate = new CountingCalculator();
+        CachingCalculator cache = new CachingCalculator(delegate, 8);
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                cache.calculate(Double.NaN, 1);
+                throw new AssertionError("Delegate exception should propagate");
+            } catch (ArithmeticException expected) {
+                // Thrown by the delegate on every call
+            }
+        }
+        TestSupport.check(delegate.calls == 2, "failed calculations are retried, not cached");
+        TestSupport.check(cache.getHitCount() == 0, "no hits for a failing key");
+    }
+
+    private static void testInvalidArguments() {
+        for (int size : new int[]{0, -1}) {
+            try {
+                new CachingCalculator(new CountingCalculator(), size);
+                throw new AssertionError("Size " + size + " should be rejected");
+            } catch (IllegalArgumentException expected) {
+                // A cache needs at least one entry
+            }
+        }
+        try {
+            new CachingCalculator(null, 8);
+            throw new AssertionError("Missing delegate should be rejected");
+        } catch (IllegalArgumentException expected) {
+            // Nothing to cache
+        }
+    }
+
+    // Sets share stripe locks; every answer must still be right and every call counted once
+    private static void testConcurrentCallers() throws InterruptedException {
+        AbstractCalculator multiplication = new AbstractCalculator() {
+            @Override
+            public double calculate(double a, double b) {
+                return a * b;
+            }
+        };
+        CachingCalculator cache = new CachingCalculator(multiplication, 512);
+        int callsPerThread = 50_000;
+        TestSupport.runConcurrently(4, () -> {
+            for (int i = 0; i < callsPerThread; i++) {
+                int a = i % 1_000;
+                TestSupport.check(cache.calculate(a, 3) == a * 3, "cached product for " + a);
+            }
+        });
+        long calls = cache.getHitCount() + cache.getMissCount();
+        TestSupport.check(calls == 4L * callsPerThread, "every call counted once: " + calls);
+        TestSupport.check(cache.getEvictionCount() > 0 && cache.getHitCount() > 0, "both hits and evictions: " + cache);
+    }
+
+    private static class CountingCalculator extends AbstractCalculator {
+
+        int calls;
+
+        @Override
+        public double calculate(double a, double b) {
+            calls++;
+            if (Double.isNaN(a)) {
+                throw new ArithmeticException("NaN operand");
+            }
+            return a + b;
+        }
+
+        @Override
+        public String getType() {
+            return "Counting";
+        }
+    }
+}
@@ -2,6 +2,8 @@ import java.io.Serializable;
 
 public class CalculationResult implements Serializable {
 
+    private static final long serialVersionUID = -5999634723043833154L;
+
     private String type;
     private double value;
 
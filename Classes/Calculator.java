@@ -1,145 +1,75 @@
+import java.util.Objects;
+import java.util.OptionalDouble;
+
 public class Calculator {
 
-    private static final Calculator instance = new Calculator();
+    // The shared instance may be used from any thread, so its history is lock-free
+    private static final Calculator instance = new Calculator(new ConcurrentCommandHistory());
 
-    private CommandHistory history = new CommandHistory();
+    private final UndoHistory history;
+    private volatile ResultSink resultSink = NoOpResultSink.INSTANCE;
 
-    private Calculator() {
+    private Calculator(UndoHistory history) {
+        this.history = history;
     }
 
     public static Calculator getInstance() {
         return instance;
     }
 
-    public void add(double a, double b) {
-        Command command = new AddCommand(a, b);
-        command.execute();
-        history.add(command);
+    // A calculator with its own history for one session or thread; not safe to share between threads
+    public static Calculator newSession() {
+        return new Calculator(new CommandHistory());
     }
 
-    public void subtract(double a, double b) {
-        Command command = new SubtractCommand(a, b);
-        command.execute();
-        history.add(command);
+    // Results are also published to this sink; the default discards them
+    public void setResultSink(ResultSink resultSink) {
+        this.resultSink = Objects.requireNonNull(resultSink, "resultSink");
     }
 
-    public void multiply(double a, double b) {
-        Command command = new MultiplyCommand(a, b);
-        command.execute();
-        history.add(command);
+    public double add(double a, double b) {
+        return perform(Operation.ADD, a, b);
     }
 
-    public void divide(double a, double b) {
-        Command command = new DivideCommand(a, b);
-        command.execute();
-        history.add(command);
+    public double subtract(double a, double b) {
+        return perform(Operation.SUBTRACT, a, b);
     }
 
-    public void undo() {
-        history.undo();
+    public double multiply(double a, double b) {
+        return perform(Operation.MULTIPLY, a, b);
     }
 
-    public boolean canUndo() {
-        return history.canUndo();
+    // Throws ArithmeticException for a zero divisor; nothing is recorded then
+    public double divide(double a, double b) {
+        return perform(Operation.DIVIDE, a, b);
     }
 
-    private static class AddCommand extends UndoableCommand {
-
-        private double a;
-        private double b;
-
-        public AddCommand(double a, double b) {
-            this.a = a;
-            this.b = b;
-        }
-
-        @Override
-        public void execute() {
-            double result = a + b;
-            System.out.println("Result: " + result);
-        }
-
-        @Override
-        public void undo() {
-            double result = a + b; // Reversing addition operation
-            System.out.println("Undo: " + result);
-        }
+    // No command object is created; the history records the operation as primitives
+    private double perform(Operation operation, double a, double b) {
+        double result = OperationCommand.compute(operation, a, b);
+        history.add(operation, a, b, result);
+        resultSink.publish(result);
+        return result;
     }
 
-    private static class SubtractCommand extends UndoableCommand {
-
-        private double a;
-        private double b;
-
-        public SubtractCommand(double a, double b) {
-            this.a = a;
-            this.b = b;
-        }
-
-        @Override
-        public void execute() {
-            double result = a - b;
-            System.out.println("Result: " + result);
-        }
-
-        @Override
-        public void undo() {
-            double result = a - b; // Reversing subtraction operation
-            System.out.println("Undo: " + result);
-        }
+    // Evaluates a constant formula such as "2 * (3 + 4) ^ 2"; the result is published but not added to
+    // the undo history. Compile once with Expression.compile for formulas reused with different inputs
+    public double evaluate(String expression) {
+        double result = Expression.compile(expression).evaluate();
+        resultSink.publish(result);
+        return result;
     }
 
-    private static class MultiplyCommand extends UndoableCommand {
-
-        private double a;
-        private double b;
-
-        public MultiplyCommand(double a, double b) {
-            this.a = a;
-            this.b = b;
-        }
-
-        @Override
-        public void execute() {
-            double result = a * b;
-            System.out.println("Result: " + result);
-        }
-
-        @Override
-        public void undo() {
-            double result = a * b; // Reversing multiplication operation
-            System.out.println("Undo: " + result);
+    // Returns the result of the undone operation, or empty if there was nothing to undo
+    public OptionalDouble undo() {
+        OptionalDouble result = history.undo();
+        if (result.isPresent()) {
+            resultSink.publishUndo(result.getAsDouble());
         }
+        return result;
     }
 
-    private static class DivideCommand extends UndoableCommand {
-
-        private double a;
-        private double b;
-
-        public DivideCommand(double a, double b) {
-            this.a = a;
-            this.b = b;
-        }
-
-        @Override
-        public void execute() {
-            if (b != 0) {
-                double result = a / b;
-                System.out.println("Result: " + result);
-            } else {
-                System.out.println("Cannot divide by zero.");
-            }
-        }
-
-        @Override
-        public void undo() {
-            if (b != 0) {
-                double result = a / b; // Reversing division operation
-                System.out.println("Undo: " + result);
-            } else {
-                System.out.println("Cannot divide by zero.");
-            }
-        }
+    public boolean canUndo() {
+        return history.canUndo();
     }
 }
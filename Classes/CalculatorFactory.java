@@ -1,7 +1,116 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 public class CalculatorFactory {
 
+    // Opcodes of the built-in types; registered types get the following numbers in registration order
+    public static final int ADDITION = 0;
+    public static final int MULTIPLICATION = 1;
+
+    private static final MethodHandle CALCULATE;
+
+    // Calculators are registered once and shared; an opcode is the index into this array
+    private static final Map<String, Integer> opcodes = new ConcurrentHashMap<>();
+    private static volatile AbstractCalculator[] calculators = new AbstractCalculator[0];
+
+    static {
+        try {
+            CALCULATE = MethodHandles.publicLookup().findVirtual(AbstractCalculator.class, "calculate",
+                    MethodType.methodType(double.class, double.class, double.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        register("Addition", new AdditionCalculator());
+        register("Multiplication", new MultiplicationCalculator());
+        loadProviders();
+    }
+
+    // A provider that cannot be loaded, fails or reuses a name is logged and skipped, so one bad
+    // plugin cannot leave the factory unusable
+    private static void loadProviders() {
+        System.Logger log = System.getLogger(CalculatorFactory.class.getName());
+        Iterator<CalculatorProvider> providers = ServiceLoader.load(CalculatorProvider.class).iterator();
+        while (true) {
+            CalculatorProvider provider;
+            try {
+                if (!providers.hasNext()) {
+                    return;
+                }
+                provider = providers.next();
+            } catch (ServiceConfigurationError e) {
+                log.log(System.Logger.Level.WARNING, "Skipping calculator provider that cannot be loaded", e);
+                continue;
+            }
+            try {
+                register(provider.getName(), provider.create());
+            } catch (RuntimeException e) {
+                log.log(System.Logger.Level.WARNING, "Skipping calculator provider " + provider.getClass().getName(), e);
+            }
+        }
+    }
+
+    // Returns the opcode of the new type; names are unique and registrations are permanent
+    public static synchronized int register(String type, AbstractCalculator calculator) {
+        if (type == null || calculator == null) {
+            throw new IllegalArgumentException("Calculator type and instance are required");
+        }
+        if (opcodes.containsKey(type)) {
+            throw new IllegalArgumentException("Calculator type already registered: " + type);
+        }
+        int opcode = calculators.length;
+        AbstractCalculator[] grown = Arrays.copyOf(calculators, opcode + 1);
+        grown[opcode] = calculator;
+        calculators = grown; // Publish the array before the name so a visible opcode is always valid
+        opcodes.put(type, opcode);
+        return opcode;
+    }
+
+    // Resolve once, then dispatch with calculate(int, double, double)
+    public static int opcode(String type) {
+        Integer opcode = opcodes.get(type);
+        if (opcode == null) {
+            throw new IllegalArgumentException("Unknown calculator type: " + type);
+        }
+        return opcode;
+    }
+
+    public static double calculate(int opcode, double a, double b) {
+        return calculators[opcode].calculate(a, b);
+    }
+
+    // A (double, double)double handle bound to the registered instance; store it in a static final
+    // field and call invokeExact so the JIT can inline through it
+    public static MethodHandle methodHandle(String type) {
+        return CALCULATE.bindTo(calculators[opcode(type)]);
+    }
+
+    public static synchronized List<String> getRegisteredTypes() {
+        String[] types = new String[calculators.length];
+        opcodes.forEach((type, opcode) -> types[opcode] = type);
+        return List.of(types);
+    }
+
+    // Returns the shared instance for the type; nothing is allocated per call
     public AbstractCalculator createCalculator(String type) {
-        return createCalculator(type);
+        return calculators[opcode(type)];
+    }
+
+    // Wraps any calculator with a bounded result cache; see CachingCalculator
+    public CachingCalculator withCache(AbstractCalculator calculator, int maximumSize) {
+        return new CachingCalculator(calculator, maximumSize);
+    }
+
+    public CachingCalculator withCache(AbstractCalculator calculator, int maximumSize, long ttl, TimeUnit unit) {
+        return new CachingCalculator(calculator, maximumSize, ttl, unit);
     }
 
     public ResultFormatter createFormatter(String type) {
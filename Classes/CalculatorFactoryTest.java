@@ -0,0 +1,122 @@
+import java.lang.invoke.MethodHandle;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class CalculatorFactoryTest {
+
+    public static void test() throws Exception {
+        testBuiltInTypes();
+        testRegister();
+        testProvidersAreDiscovered();
+    }
+
+    private static void testBuiltInTypes() {
+        List<String> types = CalculatorFactory.getRegisteredTypes();
+        TestSupport.check(types.size() >= 2 && "Addition".equals(types.get(CalculatorFactory.ADDITION))
+                && "Multiplication".equals(types.get(CalculatorFactory.MULTIPLICATION)), "built-in opcodes " + types);
+        TestSupport.check(CalculatorFactory.calculate(CalculatorFactory.MULTIPLICATION, 3, 4) == 12, "calculate");
+        MethodHandle addition = CalculatorFactory.methodHandle("Addition");
+        double sum;
+        try {
+            sum = (double) addition.invokeExact(1.5, 2.0);
+        } catch (Throwable e) {
+            throw new AssertionError("method handle failed", e);
+        }
+        TestSupport.check(sum == 3.5, "method handle");
+
+        CalculatorFactory factory = new CalculatorFactory();
+        AbstractCalculator calculator = factory.createCalculator("Addition");
+        TestSupport.check(calculator == factory.createCalculator("Addition"), "instances are shared");
+        TestSupport.check(factory.withCache(calculator, 8).calculate(2, 2) == 4, "cached calculator");
+        TestSupport.expect(IllegalArgumentException.class, () -> factory.createCalculator("Division"));
+        TestSupport.expect(IllegalArgumentException.class, () -> CalculatorFactory.opcode("Division"));
+    }
+
+    private static void testRegister() {
+        AbstractCalculator power = new AbstractCalculator() {
+            @Override
+            public double calculate(double a, double b) {
+                return Math.pow(a, b);
+            }
+        };
+        int opcode = CalculatorFactory.register("Power", power);
+        TestSupport.check(CalculatorFactory.opcode("Power") == opcode, "opcode of a registered type");
+        TestSupport.check(CalculatorFactory.getRegisteredTypes().get(opcode).equals("Power"), "type list");
+        TestSupport.check(CalculatorFactory.calculate(opcode, 2, 10) == 1024, "registered calculator");
+        TestSupport.expect(IllegalArgumentException.class, () -> CalculatorFactory.register("Power", power));
+        TestSupport.expect(IllegalArgumentException.class, () -> CalculatorFactory.register("Addition", power));
+        TestSupport.expect(IllegalArgumentException.class, () -> CalculatorFactory.register("Nothing", null));
+    }
+
+    // Loads a fresh copy of the factory whose class path also lists a good provider, one that fails,
+    // one that reuses a built-in name and one that does not exist; only the good one may be registered
+    private static void testProvidersAreDiscovered() throws Exception {
+        Path services = Files.createTempDirectory("calculator-providers");
+        ClassLoader previous = Thread.currentThread().getContextClassLoader();
+        try {
+            Path file = services.resolve("META-INF/services/" + CalculatorProvider.class.getName());
+            Files.createDirectories(file.getParent());
+            Files.write(file, List.of(SubtractionProvider.class.getName(), FailingProvider.class.getName(),
+                    DuplicateProvider.class.getName(), "MissingProvider"));
+            URL classes = CalculatorFactory.class.getProtectionDomain().getCodeSource().getLocation();
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{classes, services.toUri().toURL()},
+                    ClassLoader.getPlatformClassLoader())) {
+                Thread.currentThread().setContextClassLoader(loader);
+                Class<?> factory = Class.forName(CalculatorFactory.class.getName(), true, loader);
+                Object types = factory.getMethod("getRegisteredTypes").invoke(null);
+                TestSupport.check(List.of("Addition", "Multiplication", "Subtraction").equals(types),
+                        "providers registered " + types);
+            }
+        } finally {
+            Thread.currentThread().setContextClassLoader(previous);
+            TestSupport.deleteRecursively(services);
+        }
+    }
+
+    public static class SubtractionProvider implements CalculatorProvider {
+
+        @Override
+        public String getName() {
+            return "Subtraction";
+        }
+
+        @Override
+        public AbstractCalculator create() {
+            return new AbstractCalculator() {
+                @Override
+                public double calculate(double a, double b) {
+                    return a - b;
+                }
+            };
+        }
+    }
+
+    public static class FailingProvider implements CalculatorProvider {
+
+        @Override
+        public String getName() {
+            return "Failing";
+        }
+
+        @Override
+        public AbstractCalculator create() {
+            throw new IllegalStateException("Provider is misconfigured");
+        }
+    }
+
+    public static class DuplicateProvider implements CalculatorProvider {
+
+        @Override
+        public String getName() {
+            return "Addition";
+        }
+
+        @Override
+        public AbstractCalculator create() {
+            return new AdditionCalculator();
+        }
+    }
+}
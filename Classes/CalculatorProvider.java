@@ -0,0 +1,10 @@
+// Contributes a calculator type to CalculatorFactory. Implementations are discovered with ServiceLoader:
+// list their class names in META-INF/services/CalculatorProvider on the classpath.
+public interface CalculatorProvider {
+
+    // The name passed to CalculatorFactory.createCalculator, e.g. "Addition"
+    String getName();
+
+    // Called once; the instance is shared by every caller, so it must be stateless or thread-safe
+    AbstractCalculator create();
+}
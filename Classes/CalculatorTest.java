@@ -1,6 +1,72 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.OptionalDouble;
+
 public class CalculatorTest {
 
-    public static void test() {
-        // Add tests here
+    public static void test() throws IOException {
+        testResultsArePublished();
+        testUndoPublishesOnlyRealResults();
+        testFailedOperationIsNotRecorded();
+        testAsyncWriterSink();
+        testClosedSinkDoesNotBreakCalculations();
+    }
+
+    private static void testResultsArePublished() {
+        Calculator calculator = Calculator.newSession();
+        CollectingResultSink sink = new CollectingResultSink();
+        calculator.setResultSink(sink);
+        TestSupport.check(calculator.add(2, 3) == 5, "add");
+        TestSupport.check(calculator.multiply(4, 2.5) == 10, "multiply");
+        TestSupport.check(calculator.evaluate("2 * (3 + 4)") == 14, "evaluate");
+        TestSupport.check(Arrays.equals(new double[]{5, 10, 14}, sink.getResults()),
+                "published " + Arrays.toString(sink.getResults()));
+    }
+
+    // NaN is a result like any other; only an empty history yields an empty undo
+    private static void testUndoPublishesOnlyRealResults() {
+        Calculator calculator = Calculator.newSession();
+        calculator.subtract(1, 1);
+        calculator.add(Double.NaN, 1);
+        OptionalDouble undone = calculator.undo();
+        TestSupport.check(undone.isPresent() && Double.isNaN(undone.getAsDouble()), "undo NaN result: " + undone);
+        undone = calculator.undo();
+        TestSupport.check(undone.isPresent() && undone.getAsDouble() == 0, "undo subtract: " + undone);
+        TestSupport.check(!calculator.canUndo() && !calculator.undo().isPresent(), "nothing left to undo");
+        calculator.evaluate("1 + 1");
+        TestSupport.check(!calculator.canUndo(), "evaluate is not added to the history");
+    }
+
+    private static void testFailedOperationIsNotRecorded() {
+        Calculator calculator = Calculator.newSession();
+        CollectingResultSink sink = new CollectingResultSink();
+        calculator.setResultSink(sink);
+        TestSupport.expect(ArithmeticException.class, () -> calculator.divide(1, 0));
+        TestSupport.check(!calculator.canUndo() && sink.size() == 0, "failed division left no trace");
+    }
+
+    private static void testAsyncWriterSink() throws IOException {
+        StringWriter out = new StringWriter();
+        Calculator calculator = Calculator.newSession();
+        try (AsyncWriterResultSink sink = new AsyncWriterResultSink(out)) {
+            calculator.setResultSink(sink);
+            calculator.add(1, 2);
+            calculator.undo();
+        }
+        String expected = "Result: 3.0" + System.lineSeparator() + "Undo: 3.0" + System.lineSeparator();
+        TestSupport.check(expected.equals(out.toString()), "written: " + out);
+    }
+
+    // A sink closed before the calculator must not turn a recorded operation into an exception
+    private static void testClosedSinkDoesNotBreakCalculations() throws IOException {
+        StringWriter out = new StringWriter();
+        AsyncWriterResultSink sink = new AsyncWriterResultSink(out);
+        Calculator calculator = Calculator.newSession();
+        calculator.setResultSink(sink);
+        sink.close();
+        TestSupport.check(calculator.add(2, 2) == 4, "calculation after close");
+        TestSupport.check(calculator.undo().isPresent(), "operation was recorded and can be undone");
+        TestSupport.check(out.toString().isEmpty(), "nothing written after close: " + out);
     }
 }
@@ -0,0 +1,33 @@
+import java.util.Arrays;
+
+// Keeps published results in memory, e.g. for tests or for a later bulk report
+public class CollectingResultSink implements ResultSink {
+
+    private double[] results = new double[16];
+    private int size;
+
+    @Override
+    public synchronized void publish(double result) {
+        if (size == results.length) {
+            results = Arrays.copyOf(results, size * 2);
+        }
+        results[size++] = result;
+    }
+
+    // Undone results are not collected
+    @Override
+    public void publishUndo(double result) {
+    }
+
+    public synchronized double[] getResults() {
+        return Arrays.copyOf(results, size);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        size = 0;
+    }
+}
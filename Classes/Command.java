@@ -1,4 +1,4 @@
 public abstract class Command {
 
-    public abstract void execute();
+    public abstract double execute();
 }
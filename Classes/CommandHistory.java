@@ -1,24 +1,138 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.OptionalDouble;
 
-public class CommandHistory {
+// Keeps the most recent commands in a fixed-size circular buffer; once full, each add evicts the oldest.
+// Arithmetic operations are stored as primitives in parallel arrays (opcode, operands, result) and
+// turned back into a command only when spilled, so recording one allocates nothing. Other commands are
+// kept as objects. Evicted entries can be appended to a spill file, one line each, but can no
+// longer be undone.
+// Not thread-safe; shared calculators use ConcurrentCommandHistory
+public class CommandHistory implements UndoHistory {
 
-    private List<Command> commands = new ArrayList<>();
+    public static final int DEFAULT_CAPACITY = 1000;
 
+    private static final byte OBJECT = -1; // Entry is in the commands array, not encoded
+
+    private final byte[] operations;
+    private final double[] firstOperands;
+    private final double[] secondOperands;
+    private final double[] results;
+    private Command[] commands; // Only allocated once a non-arithmetic command is added
+    private final OperationCommand view = new OperationCommand(Operation.ADD, 0, 0);
+    private int next; // Slot for the next entry; the newest is just before it
+    private int size;
+    private final HistorySpill spill; // Null when evicted entries are simply dropped
+
+    public CommandHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CommandHistory(int capacity) {
+        this(capacity, null);
+    }
+
+    public CommandHistory(int capacity, Path spillFile) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.operations = new byte[capacity];
+        this.firstOperands = new double[capacity];
+        this.secondOperands = new double[capacity];
+        this.results = new double[capacity];
+        this.spill = spillFile == null ? null : new HistorySpill(spillFile);
+    }
+
+    @Override
     public void add(Command command) {
-        commands.add(command);
+        if (command instanceof OperationCommand) {
+            OperationCommand operation = (OperationCommand) command;
+            add(operation.getOperation(), operation.getA(), operation.getB(), operation.execute());
+            return;
+        }
+        if (commands == null) {
+            commands = new Command[operations.length];
+        }
+        int slot = claimSlot();
+        operations[slot] = OBJECT;
+        commands[slot] = command;
     }
 
-    public void undo() {
-        if (!commands.isEmpty()) {
-            Command command = commands.remove(commands.size() - 1);
-            if (command instanceof UndoableCommand) {
-                ((UndoableCommand) command).undo();
-            }
+    @Override
+    public void add(Operation operation, double a, double b, double result) {
+        int slot = claimSlot();
+        operations[slot] = operation.code();
+        firstOperands[slot] = a;
+        secondOperands[slot] = b;
+        results[slot] = result;
+    }
+
+    @Override
+    public OptionalDouble undo() {
+        if (size == 0) {
+            return OptionalDouble.empty();
+        }
+        next = next == 0 ? operations.length - 1 : next - 1;
+        size--;
+        if (operations[next] != OBJECT) {
+            return OptionalDouble.of(results[next]);
         }
+        Command command = commands[next];
+        commands[next] = null;
+        return command instanceof UndoableCommand
+                ? OptionalDouble.of(((UndoableCommand) command).undo()) : OptionalDouble.empty();
     }
 
+    @Override
     public boolean canUndo() {
-        return !commands.isEmpty();
+        return size > 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return operations.length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (spill != null) {
+            spill.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+        }
+    }
+
+    private int claimSlot() {
+        int slot = next;
+        if (size == operations.length) {
+            if (spill != null) {
+                spill.write(entry(slot));
+            }
+            if (commands != null) {
+                commands[slot] = null;
+            }
+        } else {
+            size++;
+        }
+        next = slot + 1 == operations.length ? 0 : slot + 1;
+        return slot;
+    }
+
+    // The returned view is reused; it is only valid until the next call
+    private Command entry(int slot) {
+        if (operations[slot] == OBJECT) {
+            return commands[slot];
+        }
+        return view.set(Operation.fromCode(operations[slot]), firstOperands[slot], secondOperands[slot]);
     }
 }
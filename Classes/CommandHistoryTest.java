@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalDouble;
+
+public class CommandHistoryTest {
+
+    public static void test() throws IOException {
+        testOldestEntriesAreEvicted();
+        testSpillFileReceivesEvictedEntries();
+        testUndoAfterWraparound();
+        testInvalidCapacity();
+        testOperationCommandsAreEncoded();
+        testMixedCommands();
+    }
+
+    private static void testOldestEntriesAreEvicted() throws IOException {
+        try (CommandHistory history = new CommandHistory(3)) {
+            for (int i = 1; i <= 5; i++) {
+                history.add(Operation.ADD, i, 0, i);
+            }
+            TestSupport.check(history.size() == 3 && history.capacity() == 3, "size stays at capacity");
+            for (int expected = 5; expected >= 3; expected--) {
+                checkUndo(history.undo(), expected);
+            }
+            TestSupport.check(!history.canUndo() && !history.undo().isPresent(), "evicted entries are gone");
+        }
+    }
+
+    // Evicted entries are written oldest first, then flushed at least on close
+    private static void testSpillFileReceivesEvictedEntries() throws IOException {
+        Path spill = Files.createTempFile("command-history", ".txt");
+        try {
+            CommandHistory history = new CommandHistory(2, spill);
+            history.add(Operation.SUBTRACT, 9, 4, 5);
+            history.add(Operation.DIVIDE, 8, 2, 4);
+            history.add(Operation.ADD, 1, 1, 2);
+            history.add(Operation.MULTIPLY, 3, 3, 9);
+            history.close();
+            List<String> lines = Files.readAllLines(spill);
+            TestSupport.check(List.of("subtract 9.0 4.0", "divide 8.0 2.0").equals(lines), "spilled " + lines);
+        } finally {
+            Files.delete(spill);
+        }
+    }
+
+    // The circular index must step back across the start of the arrays, then forward again
+    private static void testUndoAfterWraparound() throws IOException {
+        try (CommandHistory history = new CommandHistory(4)) {
+            for (int i = 1; i <= 6; i++) {
+                history.add(Operation.ADD, i, 0, i);
+            }
+            checkUndo(history.undo(), 6);
+            checkUndo(history.undo(), 5);
+            history.add(Operation.ADD, 7, 0, 7);
+            TestSupport.check(history.size() == 3, "size after undo and add: " + history.size());
+            checkUndo(history.undo(), 7);
+            checkUndo(history.undo(), 4);
+            checkUndo(history.undo(), 3);
+            TestSupport.check(!history.canUndo(), "history empty");
+        }
+    }
+
+    private static void testInvalidCapacity() {
+        TestSupport.expect(IllegalArgumentException.class, () -> new CommandHistory(0));
+        TestSupport.expect(IllegalArgumentException.class, () -> new ConcurrentCommandHistory(-1));
+    }
+
+    // An OperationCommand is stored as primitives, so undo returns its result and spilling rebuilds it
+    private static void testOperationCommandsAreEncoded() throws IOException {
+        Path spill = Files.createTempFile("command-history", ".txt");
+        try {
+            CommandHistory history = new CommandHistory(1, spill);
+            OperationCommand command = new OperationCommand(Operation.DIVIDE, 7, 2);
+            history.add(command);
+            checkUndo(history.undo(), 3.5);
+            history.add(command);
+            history.add(Operation.ADD, 1, 2, 3);
+            history.close();
+            TestSupport.check(List.of("divide 7.0 2.0").equals(Files.readAllLines(spill)), "rebuilt command spilled");
+        } finally {
+            Files.delete(spill);
+        }
+    }
+
+    // Custom commands are kept as objects between encoded entries; only undoable ones produce a value
+    private static void testMixedCommands() throws IOException {
+        int[] undone = new int[1];
+        Command plain = new Command() {
+            @Override
+            public double execute() {
+                return 1;
+            }
+        };
+        UndoableCommand undoable = new UndoableCommand() {
+            @Override
+            public double execute() {
+                return 2;
+            }
+
+            @Override
+            public double undo() {
+                undone[0]++;
+                return -2;
+            }
+        };
+        try (CommandHistory history = new CommandHistory(3)) {
+            history.add(Operation.MULTIPLY, 2, 3, 6);
+            history.add(plain);
+            history.add(undoable);
+            history.add(Operation.SUBTRACT, 5, 1, 4);
+            checkUndo(history.undo(), 4);
+            checkUndo(history.undo(), -2);
+            TestSupport.check(undone[0] == 1, "undoable command undone once");
+            TestSupport.check(!history.undo().isPresent(), "plain command has nothing to undo");
+            TestSupport.check(!history.canUndo(), "multiply was evicted");
+        }
+    }
+
+    static void checkUndo(OptionalDouble undone, double expected) {
+        TestSupport.check(undone.isPresent() && Double.compare(undone.getAsDouble(), expected) == 0,
+                "undo returned " + undone + ", expected " + expected);
+    }
+}
@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.OptionalDouble;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Lock-free history shared by many threads: a Treiber stack where add and undo are a single CAS.
+// Arithmetic operations are stored in the node itself, so recording one costs a single node.
+// Nodes are immutable once pushed. The push that would take the stack past 2 * capacity - 1 entries
+// instead puts its node on a fresh copy of the newest capacity - 1 entries, in the same CAS, so the
+// depth is a hard bound however many threads are pushing. The copy is made once per eviction window
+// and reused if that CAS has to be retried against the same top; entries left behind are spilled.
+public class ConcurrentCommandHistory implements UndoHistory {
+
+    private final AtomicReference<Node> top = new AtomicReference<>();
+    private final int capacity;
+    private final HistorySpill spill; // Null when evicted entries are simply dropped
+
+    public ConcurrentCommandHistory() {
+        this(CommandHistory.DEFAULT_CAPACITY);
+    }
+
+    public ConcurrentCommandHistory(int capacity) {
+        this(capacity, null);
+    }
+
+    public ConcurrentCommandHistory(int capacity, Path spillFile) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.spill = spillFile == null ? null : new HistorySpill(spillFile);
+    }
+
+    @Override
+    public void add(Command command) {
+        push(command, null, 0, 0, 0);
+    }
+
+    @Override
+    public void add(Operation operation, double a, double b, double result) {
+        push(null, operation, a, b, result);
+    }
+
+    private void push(Command command, Operation operation, double a, double b, double result) {
+        Node current;
+        Node below;
+        Node copied = null; // Top that trimmed was copied from
+        Node trimmed = null;
+        do {
+            current = top.get();
+            below = current;
+            if (current != null && current.depth >= 2 * capacity - 1) {
+                if (current != copied) {
+                    trimmed = copyNewest(current, capacity - 1);
+                    copied = current;
+                }
+                below = trimmed;
+            }
+        } while (!top.compareAndSet(current, new Node(command, operation, a, b, result, below)));
+        if (below != current && spill != null) {
+            spill(current, capacity - 1);
+        }
+    }
+
+    @Override
+    public OptionalDouble undo() {
+        Node current;
+        do {
+            current = top.get();
+            if (current == null) {
+                return OptionalDouble.empty();
+            }
+        } while (!top.compareAndSet(current, current.next));
+        if (current.command == null) {
+            return OptionalDouble.of(current.result);
+        }
+        return current.command instanceof UndoableCommand
+                ? OptionalDouble.of(((UndoableCommand) current.command).undo()) : OptionalDouble.empty();
+    }
+
+    @Override
+    public boolean canUndo() {
+        return top.get() != null;
+    }
+
+    @Override
+    public int size() {
+        Node current = top.get();
+        return current == null ? 0 : current.depth;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (spill != null) {
+            spill.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+        }
+    }
+
+    // A new chain holding the newest count entries of the stack headed by from
+    private static Node copyNewest(Node from, int count) {
+        Node[] kept = new Node[count];
+        Node node = from;
+        for (int i = 0; i < count; i++) {
+            kept[i] = node;
+            node = node.next;
+        }
+        Node copy = null;
+        for (int i = count - 1; i >= 0; i--) {
+            copy = new Node(kept[i], copy);
+        }
+        return copy;
+    }
+
+    // Only the thread whose trimming CAS succeeded owns the evicted entries; write them oldest first
+    private void spill(Node from, int kept) {
+        Node evicted = from;
+        for (int i = 0; i < kept; i++) {
+            evicted = evicted.next;
+        }
+        Node[] lines = new Node[evicted.depth];
+        for (int i = lines.length - 1; evicted != null; i--, evicted = evicted.next) {
+            lines[i] = evicted;
+        }
+        OperationCommand view = new OperationCommand(Operation.ADD, 0, 0);
+        synchronized (spill) { // Keeps one window's lines together if the next window is evicted meanwhile
+            for (Node line : lines) {
+                spill.write(line.command != null ? line.command : view.set(line.operation, line.a, line.b));
+            }
+            try {
+                spill.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot spill command history", e);
+            }
+        }
+    }
+
+    private static class Node {
+
+        final Command command;
+        final Operation operation;
+        final double a;
+        final double b;
+        final double result;
+        final Node next;
+        final int depth;
+
+        Node(Command command, Operation operation, double a, double b, double result, Node next) {
+            this.command = command;
+            this.operation = operation;
+            this.a = a;
+            this.b = b;
+            this.result = result;
+            this.next = next;
+            this.depth = next == null ? 1 : next.depth + 1;
+        }
+
+        // Same entry on top of a different chain
+        Node(Node entry, Node next) {
+            this(entry.command, entry.operation, entry.a, entry.b, entry.result, next);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrentCommandHistoryTest {
+
+    private static final int THREADS = 4;
+    private static final int PUSHES_PER_THREAD = 50_000;
+
+    public static void test() throws Exception {
+        testUndoOrderAcrossTrim();
+        testSpillKeepsEvictionOrder();
+        testBoundUnderContention();
+        testNoLostUpdates();
+        testAllocationPerPush();
+    }
+
+    private static void testUndoOrderAcrossTrim() throws IOException {
+        try (ConcurrentCommandHistory history = new ConcurrentCommandHistory(3)) {
+            for (int i = 1; i <= 6; i++) {
+                history.add(Operation.ADD, i, 0, i);
+            }
+            // The sixth push trims to the newest two entries and puts itself on top
+            TestSupport.check(history.size() == 3, "trimmed to capacity: " + history.size());
+            for (int expected = 6; expected >= 4; expected--) {
+                OptionalDouble undone = history.undo();
+                TestSupport.check(undone.isPresent() && undone.getAsDouble() == expected, "undo order: " + undone);
+            }
+            TestSupport.check(!history.canUndo() && !history.undo().isPresent(), "evicted entries cannot be undone");
+        }
+    }
+
+    private static void testSpillKeepsEvictionOrder() throws IOException {
+        Path spill = Files.createTempFile("history-spill", ".txt");
+        try {
+            ConcurrentCommandHistory history = new ConcurrentCommandHistory(2, spill);
+            for (int i = 0; i < 10; i++) {
+                history.add(Operation.MULTIPLY, i, 2, 2 * i);
+            }
+            history.close();
+            List<String> lines = Files.readAllLines(spill);
+            TestSupport.check(lines.size() + history.size() == 10,
+                    lines.size() + " spilled, " + history.size() + " kept");
+            for (int i = 0; i < lines.size(); i++) {
+                TestSupport.check(lines.get(i).equals("multiply " + (double) i + " 2.0"),
+                        "spill line " + i + ": " + lines.get(i));
+            }
+        } finally {
+            Files.delete(spill);
+        }
+    }
+
+    // The depth is a hard bound: it must hold while pushes race, not just once they stop
+    private static void testBoundUnderContention() throws Exception {
+        int capacity = 16;
+        Path spill = Files.createTempFile("history-contention", ".txt");
+        try {
+            ConcurrentCommandHistory history = new ConcurrentCommandHistory(capacity, spill);
+            AtomicBoolean running = new AtomicBoolean(true);
+            AtomicInteger largest = new AtomicInteger();
+            Thread monitor = new Thread(() -> {
+                while (running.get()) {
+                    largest.accumulateAndGet(history.size(), Math::max);
+                    Thread.yield();
+                }
+            });
+            monitor.start();
+            TestSupport.runConcurrently(THREADS, () -> {
+                for (int i = 0; i < PUSHES_PER_THREAD; i++) {
+                    history.add(Operation.ADD, i, 1, i + 1);
+                }
+            });
+            running.set(false);
+            monitor.join();
+            history.close();
+
+            TestSupport.check(history.size() <= 2 * capacity - 1, "size after contention: " + history.size());
+            TestSupport.check(largest.get() <= 2 * capacity - 1, "size while contended reached " + largest.get());
+            long spilled;
+            try (var lines = Files.lines(spill)) {
+                spilled = lines.count();
+            }
+            TestSupport.check(spilled + history.size() == (long) THREADS * PUSHES_PER_THREAD,
+                    "every push is either kept or spilled: " + spilled + " + " + history.size());
+        } finally {
+            Files.delete(spill);
+        }
+    }
+
+    // Every pushed value is either undone by some thread or still on the stack, exactly once
+    private static void testNoLostUpdates() throws Exception {
+        int perThread = 20_000;
+        ConcurrentCommandHistory history = new ConcurrentCommandHistory(THREADS * perThread); // Never trims
+        AtomicInteger next = new AtomicInteger();
+        LongAdder undone = new LongAdder();
+        LongAdder undoneSum = new LongAdder();
+        TestSupport.runConcurrently(THREADS, () -> {
+            for (int i = 0; i < perThread; i++) {
+                int value = next.incrementAndGet();
+                history.add(Operation.ADD, value, 0, value);
+            }
+            // Each thread's own pushes keep the stack non-empty for all of its undos
+            for (int i = 0; i < perThread / 2; i++) {
+                OptionalDouble result = history.undo();
+                TestSupport.check(result.isPresent(), "undo on a non-empty stack");
+                undone.increment();
+                undoneSum.add((long) result.getAsDouble());
+            }
+        });
+        long total = (long) THREADS * perThread;
+        TestSupport.check(history.size() == total - undone.sum(), "size " + history.size() + " after contention");
+        long remainingSum = 0;
+        for (OptionalDouble result = history.undo(); result.isPresent(); result = history.undo()) {
+            remainingSum += (long) result.getAsDouble();
+        }
+        TestSupport.check(undoneSum.sum() + remainingSum == total * (total + 1) / 2, "values lost or duplicated");
+    }
+
+    // Past the bound a push used to copy capacity nodes on every attempt; now it is one node plus a
+    // copy amortized over the eviction window. Skipped where per-thread allocation is not measurable
+    private static void testAllocationPerPush() throws Exception {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        int capacity = 256;
+        ConcurrentCommandHistory history = new ConcurrentCommandHistory(capacity);
+        LongAdder allocated = new LongAdder();
+        TestSupport.runConcurrently(THREADS, () -> {
+            for (int i = 0; i < 4 * capacity; i++) { // Warm up and fill past the bound
+                history.add(Operation.ADD, i, 1, i + 1);
+            }
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < PUSHES_PER_THREAD; i++) {
+                history.add(Operation.ADD, i, 1, i + 1);
+            }
+            allocated.add(threads.getCurrentThreadAllocatedBytes() - before);
+        });
+        long perPush = allocated.sum() / ((long) THREADS * PUSHES_PER_THREAD);
+        TestSupport.check(perPush < 512, perPush + " bytes allocated per push");
+    }
+}
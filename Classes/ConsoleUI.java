@@ -1,4 +1,5 @@
 import java.util.InputMismatchException;
+import java.util.OptionalDouble;
 import java.util.Scanner;
 
 public class ConsoleUI {
@@ -9,7 +10,7 @@ public class ConsoleUI {
         Scanner scanner = new Scanner(System.in);
 
         while (true) {
-            System.out.println("Enter command [add/subtract/multiply/divide/undo/exit]:");
+            System.out.println("Enter command [add/subtract/multiply/divide/eval/undo/exit]:");
             String command = scanner.nextLine();
 
             try {
@@ -19,31 +20,38 @@ public class ConsoleUI {
                         double a = scanner.nextDouble();
                         System.out.println("Enter second number:");
                         double b = scanner.nextDouble();
-                        calculator.add(a, b);
+                        System.out.println("Result: " + calculator.add(a, b));
                         break;
                     case "subtract":
                         System.out.println("Enter first number:");
                         a = scanner.nextDouble();
                         System.out.println("Enter second number:");
                         b = scanner.nextDouble();
-                        calculator.subtract(a, b);
+                        System.out.println("Result: " + calculator.subtract(a, b));
                         break;
                     case "multiply":
                         System.out.println("Enter first number:");
                         a = scanner.nextDouble();
                         System.out.println("Enter second number:");
                         b = scanner.nextDouble();
-                        calculator.multiply(a, b);
+                        System.out.println("Result: " + calculator.multiply(a, b));
                         break;
                     case "divide":
                         System.out.println("Enter first number:");
                         a = scanner.nextDouble();
                         System.out.println("Enter second number:");
                         b = scanner.nextDouble();
-                        calculator.divide(a, b);
+                        System.out.println("Result: " + calculator.divide(a, b));
+                        break;
+                    case "eval":
+                        System.out.println("Enter expression:");
+                        System.out.println("Result: " + calculator.evaluate(scanner.nextLine()));
                         break;
                     case "undo":
-                        calculator.undo();
+                        OptionalDouble undone = calculator.undo();
+                        if (undone.isPresent()) {
+                            System.out.println("Undo: " + undone.getAsDouble());
+                        }
                         break;
                     case "exit":
                         System.exit(0);
@@ -1,32 +1,384 @@
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.LongStream;
 
 public class DigitCounter {
+
+    // Цифри десятків та одиниць для кожного числа 0..99, щоб ділити на 100 замість 10
+    private static final byte[] TENS = new byte[100];
+    private static final byte[] ONES = new byte[100];
+
+    // Найбільший степінь десяти, що вміщується у long: BigInteger ділимо порціями по 18 цифр
+    private static final int CHUNK_DIGITS = 18;
+
+    // Числа, довші за цю кількість біт (~20 тис. цифр), діляться між потоками
+    private static final int PARALLEL_BITS = 1 << 16;
+
+    private static volatile BigInteger[] powersOfTen = {BigInteger.TEN.pow(CHUNK_DIGITS)};
+
+    // Розмір частини масиву або файлу, яку обробляє один потік
+    private static final int ARRAY_CHUNK = 1 << 20;
+    private static final long FILE_CHUNK = 64L << 20;
+
+    static {
+        for (int i = 0; i < 100; i++) {
+            TENS[i] = (byte) (i / 10);
+            ONES[i] = (byte) (i % 10);
+        }
+    }
+
     public static void main(String[] args) {
         int number = 1234567890; // Ціле число, для якого потрібно підрахувати цифри
 
-        // Конвертуємо ціле число у рядок
-        String numberString = String.valueOf(number);
+        int[] digitCounts = countDigits(number);
 
-        // Створюємо хеш-таблицю для підрахунку кількості входжень кожної цифри
-        Map<Character, Integer> digitCounts = new HashMap<>();
+        // Виводимо результати підрахунку
+        System.out.println("Кількість входжень кожної цифри у числі " + number + ":");
+        for (int digit = 0; digit < digitCounts.length; digit++) {
+            if (digitCounts[digit] > 0) {
+                System.out.println(digit + ": " + digitCounts[digit]);
+            }
+        }
+    }
+
+    // Повертає масив із 10 лічильників: елемент i - кількість цифр i у десятковому записі числа
+    public static int[] countDigits(long number) {
+        int[] counts = new int[10];
+        countDigits(number, counts);
+        return counts;
+    }
+
+    // Додає цифри числа до переданого масиву лічильників, не створюючи нових об'єктів
+    public static void countDigits(long number, int[] counts) {
+        // Працюємо з від'ємним значенням, щоб коректно обробити Long.MIN_VALUE
+        long n = number > 0 ? -number : number;
+        while (n <= -100) {
+            long quotient = n / 100;
+            int pair = (int) (quotient * 100 - n);
+            counts[TENS[pair]]++;
+            counts[ONES[pair]]++;
+            n = quotient;
+        }
+        int last = (int) -n;
+        if (last >= 10) {
+            counts[TENS[last]]++;
+        }
+        counts[ONES[last]]++;
+    }
+
+    public static int[] countDigits(BigInteger number) {
+        int[] counts = new int[10];
+        countDigits(number, counts);
+        return counts;
+    }
+
+    // Ділимо число навпіл за степенями 10^(18 * 2^k), тож BigInteger.toString не потрібен,
+    // а великі половини рахуються паралельно
+    public static void countDigits(BigInteger number, int[] counts) {
+        BigInteger n = number.abs();
+        if (n.bitLength() <= PARALLEL_BITS) {
+            countUnpadded(n, counts);
+            return;
+        }
+        int[] result = ForkJoinPool.commonPool().invoke(new BigIntegerDigitTask(n, -1));
+        for (int digit = 0; digit < 10; digit++) {
+            counts[digit] += result[digit];
+        }
+    }
+
+    private static void countUnpadded(BigInteger n, int[] counts) {
+        if (n.bitLength() < Long.SIZE) {
+            countDigits(n.longValue(), counts);
+            return;
+        }
+        int level = splitLevel(n);
+        BigInteger[] quotientAndRemainder = n.divideAndRemainder(powerOfTen(level));
+        countUnpadded(quotientAndRemainder[0], counts);
+        countPadded(quotientAndRemainder[1], level, counts);
+    }
+
+    // value < 10^(18 * 2^level), рахується рівно 18 * 2^level цифр разом із провідними нулями
+    private static void countPadded(BigInteger value, int level, int[] counts) {
+        if (value.signum() == 0) {
+            counts[0] += CHUNK_DIGITS << level;
+        } else if (level == 0) {
+            countPaddedDigits(value.longValue(), CHUNK_DIGITS, counts);
+        } else {
+            BigInteger[] quotientAndRemainder = value.divideAndRemainder(powerOfTen(level - 1));
+            countPadded(quotientAndRemainder[0], level - 1, counts);
+            countPadded(quotientAndRemainder[1], level - 1, counts);
+        }
+    }
+
+    // Найбільший рівень k, для якого 10^(18 * 2^k) ще не перевищує n
+    private static int splitLevel(BigInteger n) {
+        int level = 0;
+        // Квадрат числа з b біт має щонайменше 2b - 1 біт, тож зайвий степінь не обчислюємо
+        while (2 * powerOfTen(level).bitLength() - 1 <= n.bitLength() && powerOfTen(level + 1).compareTo(n) <= 0) {
+            level++;
+        }
+        return level;
+    }
+
+    // 10^(18 * 2^level); кешується, бо кожне наступне значення - квадрат попереднього
+    private static BigInteger powerOfTen(int level) {
+        BigInteger[] powers = powersOfTen;
+        if (level < powers.length) {
+            return powers[level];
+        }
+        synchronized (DigitCounter.class) {
+            powers = powersOfTen;
+            if (level >= powers.length) {
+                BigInteger[] grown = Arrays.copyOf(powers, level + 1);
+                for (int i = powers.length; i <= level; i++) {
+                    grown[i] = grown[i - 1].multiply(grown[i - 1]);
+                }
+                powersOfTen = grown;
+                powers = grown;
+            }
+            return powers[level];
+        }
+    }
+
+    // level < 0 означає число без доповнення нулями
+    private static class BigIntegerDigitTask extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BigInteger value;
+        private final int level;
+
+        BigIntegerDigitTask(BigInteger value, int level) {
+            this.value = value;
+            this.level = level;
+        }
+
+        @Override
+        protected int[] compute() {
+            int[] counts = new int[10];
+            if (value.bitLength() <= PARALLEL_BITS) {
+                if (level < 0) {
+                    countUnpadded(value, counts);
+                } else {
+                    countPadded(value, level, counts);
+                }
+                return counts;
+            }
+            int splitLevel = level < 0 ? splitLevel(value) : level - 1;
+            BigInteger[] quotientAndRemainder = value.divideAndRemainder(powerOfTen(splitLevel));
+            BigIntegerDigitTask high = new BigIntegerDigitTask(quotientAndRemainder[0], level < 0 ? -1 : splitLevel);
+            high.fork();
+            int[] low = new BigIntegerDigitTask(quotientAndRemainder[1], splitLevel).compute();
+            int[] highCounts = high.join();
+            for (int digit = 0; digit < 10; digit++) {
+                counts[digit] = low[digit] + highCounts[digit];
+            }
+            return counts;
+        }
+    }
 
-        // Проходимо по кожному символу (цифрі) у рядку та підраховуємо їх кількість
+    // Наївний підрахунок через десятковий рядок; використовується для перевірки
+    static int[] countDigitsNaive(BigInteger number) {
+        String numberString = number.abs().toString();
+        int[] counts = new int[10];
         for (int i = 0; i < numberString.length(); i++) {
-            char digit = numberString.charAt(i);
-            // Якщо цифра вже зустрічалася, збільшуємо лічильник на 1
-            if (digitCounts.containsKey(digit)) {
-                digitCounts.put(digit, digitCounts.get(digit) + 1);
-            } else {
-                // Якщо цифра ще не зустрічалася, додаємо її до хеш-таблиці з лічильником 1
-                digitCounts.put(digit, 1);
+            counts[numberString.charAt(i) - '0']++;
+        }
+        return counts;
+    }
+
+    // Рахує число як рівно width цифр, включно з провідними нулями (0 <= value < 10^width)
+    static void countPaddedDigits(long value, int width, int[] counts) {
+        int written = 0;
+        while (value >= 100) {
+            int pair = (int) (value % 100);
+            counts[TENS[pair]]++;
+            counts[ONES[pair]]++;
+            value /= 100;
+            written += 2;
+        }
+        int last = (int) value;
+        counts[ONES[last]]++;
+        written++;
+        if (last >= 10) {
+            counts[TENS[last]]++;
+            written++;
+        }
+        counts[0] += width - written;
+    }
+
+    // Сумарна гістограма цифр для всіх чисел масиву; частини рахуються паралельно
+    public static long[] countDigits(long[] numbers) {
+        int chunks = (int) ((numbers.length + (long) ARRAY_CHUNK - 1) / ARRAY_CHUNK);
+        return countChunks(chunks, chunk -> {
+            int[] counts = new int[10];
+            int end = (int) Math.min(numbers.length, (long) (chunk + 1) * ARRAY_CHUNK);
+            for (int i = chunk * ARRAY_CHUNK; i < end; i++) {
+                countDigits(numbers[i], counts);
+            }
+            return toLongs(counts);
+        });
+    }
+
+    public static long[] countDigits(LongStream numbers) {
+        return numbers.collect(DigitHistogram::new, DigitHistogram::accept, DigitHistogram::merge).getCounts();
+    }
+
+    // Файл із числами long у двійковому вигляді (big-endian, по 8 байтів)
+    public static long[] countDigitsInBinaryFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size % Long.BYTES != 0) {
+                throw new IOException("File size " + size + " is not a multiple of " + Long.BYTES + ": " + file);
             }
+            int chunks = (int) ((size + FILE_CHUNK - 1) / FILE_CHUNK);
+            return countFileChunks(chunks, chunk -> {
+                long start = chunk * FILE_CHUNK;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(FILE_CHUNK, size - start));
+                int[] counts = new int[10];
+                while (buffer.remaining() >= Long.BYTES) {
+                    countDigits(buffer.getLong(), counts);
+                }
+                return toLongs(counts);
+            });
         }
+    }
 
-        // Виводимо результати підрахунку
-        System.out.println("Кількість входжень кожної цифри у числі " + number + ":");
-        for (Map.Entry<Character, Integer> entry : digitCounts.entrySet()) {
-            System.out.println(entry.getKey() + ": " + entry.getValue());
+    // Текстовий файл із десятковими числами, розділеними будь-якими нецифровими символами.
+    // Байти розбираються напряму, без створення рядків; провідні нулі не рахуються, як і в String.valueOf
+    public static long[] countDigitsInTextFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = textChunkBounds(channel);
+            return countFileChunks(bounds.length - 1, chunk -> {
+                long start = bounds[chunk];
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, bounds[chunk + 1] - start);
+                int[] counts = new int[10];
+                countTextDigits(buffer, counts);
+                return toLongs(counts);
+            });
+        }
+    }
+
+    private static void countTextDigits(ByteBuffer buffer, int[] counts) {
+        boolean inNumber = false;
+        boolean significant = false; // Чи зустрілася вже ненульова цифра в поточному числі
+        while (buffer.hasRemaining()) {
+            int digit = buffer.get() - '0';
+            if (digit >= 0 && digit <= 9) {
+                inNumber = true;
+                if (digit != 0 || significant) {
+                    significant = true;
+                    counts[digit]++;
+                }
+            } else if (inNumber) {
+                if (!significant) {
+                    counts[0]++; // Число складалося лише з нулів
+                }
+                inNumber = false;
+                significant = false;
+            }
+        }
+        if (inNumber && !significant) {
+            counts[0]++;
+        }
+    }
+
+    // Межі частин зсуваються вперед, доки не потраплять між числами, щоб жодне число не було розрізане
+    private static long[] textChunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int chunks = (int) Math.max(1, (size + FILE_CHUNK - 1) / FILE_CHUNK);
+        long[] bounds = new long[chunks + 1];
+        ByteBuffer probe = ByteBuffer.allocate(1);
+        for (int i = 1; i < chunks; i++) {
+            long position = Math.max(i * FILE_CHUNK, bounds[i - 1]);
+            while (position < size && isDigitAt(channel, position - 1, probe)) {
+                position++;
+            }
+            bounds[i] = position;
+        }
+        bounds[chunks] = size;
+        return bounds;
+    }
+
+    private static boolean isDigitAt(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        probe.clear();
+        if (channel.read(probe, position) < 1) {
+            return false;
+        }
+        byte b = probe.get(0);
+        return b >= '0' && b <= '9';
+    }
+
+    private interface ChunkCounter {
+        long[] count(int chunk) throws IOException;
+    }
+
+    private static long[] countFileChunks(int chunks, ChunkCounter counter) throws IOException {
+        try {
+            return countChunks(chunks, counter);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static long[] countChunks(int chunks, ChunkCounter counter) {
+        if (chunks == 0) {
+            return new long[10];
+        }
+        return ForkJoinPool.commonPool().invoke(new ChunkTask(counter, 0, chunks));
+    }
+
+    private static long[] toLongs(int[] counts) {
+        long[] result = new long[10];
+        for (int digit = 0; digit < 10; digit++) {
+            result[digit] = counts[digit];
+        }
+        return result;
+    }
+
+    // Кожна частина має власні лічильники, які об'єднуються лише після завершення
+    private static class ChunkTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ChunkCounter counter;
+        private final int from;
+        private final int to;
+
+        ChunkTask(ChunkCounter counter, int from, int to) {
+            this.counter = counter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from == 1) {
+                try {
+                    return counter.count(from);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int middle = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(counter, from, middle);
+            left.fork();
+            long[] counts = new ChunkTask(counter, middle, to).compute();
+            long[] leftCounts = left.join();
+            for (int digit = 0; digit < 10; digit++) {
+                counts[digit] += leftCounts[digit];
+            }
+            return counts;
         }
     }
-}
\ No newline at end of file
+}
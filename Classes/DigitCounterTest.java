@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+public class DigitCounterTest {
+
+    public static void test() throws IOException {
+        testLongMatchesNaive();
+        testBigIntegerMatchesNaive();
+        testCountsAccumulate();
+        testPaddedDigits();
+        testBulkCounts();
+        testHistogramMerge();
+        testBinaryFile();
+        testTextFile();
+    }
+
+    private static void testLongMatchesNaive() {
+        long[] values = {0, 7, 10, 99, 100, -1, -100, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            check(DigitCounter.countDigitsNaive(BigInteger.valueOf(value)), DigitCounter.countDigits(value), value);
+        }
+    }
+
+    private static void testBigIntegerMatchesNaive() {
+        Random random = new Random(42);
+        int[] bitLengths = {1, 63, 64, 65, 200, 2_000, 70_000, 300_000};
+        for (int bits : bitLengths) {
+            BigInteger value = new BigInteger(bits, random).setBit(bits - 1);
+            check(DigitCounter.countDigitsNaive(value), DigitCounter.countDigits(value), bits + "-bit value");
+            check(DigitCounter.countDigitsNaive(value.negate()), DigitCounter.countDigits(value.negate()),
+                    "negative " + bits + "-bit value");
+        }
+        // Round powers of ten have long runs of zeros in every padded half
+        BigInteger power = BigInteger.TEN.pow(100_000);
+        check(DigitCounter.countDigitsNaive(power), DigitCounter.countDigits(power), "10^100000");
+    }
+
+    // The array overload adds to the counts it is given, so one array can collect many numbers
+    private static void testCountsAccumulate() {
+        int[] counts = new int[10];
+        DigitCounter.countDigits(1_000L, counts);
+        DigitCounter.countDigits(-90L, counts);
+        DigitCounter.countDigits(BigInteger.valueOf(19), counts);
+        check(new int[]{4, 2, 0, 0, 0, 0, 0, 0, 0, 2}, counts, "1000, -90 and 19");
+    }
+
+    private static void testPaddedDigits() {
+        int[] counts = new int[10];
+        DigitCounter.countPaddedDigits(0, 18, counts);
+        check(new int[]{18, 0, 0, 0, 0, 0, 0, 0, 0, 0}, counts, "zero padded to 18 digits");
+        counts = new int[10];
+        DigitCounter.countPaddedDigits(4_051, 6, counts);
+        check(new int[]{3, 1, 0, 0, 1, 1, 0, 0, 0, 0}, counts, "4051 padded to 6 digits");
+    }
+
+    // Large enough to be split into several parallel chunks
+    private static void testBulkCounts() {
+        long[] numbers = new Random(7).longs(2_500_000).toArray();
+        numbers[0] = Long.MIN_VALUE;
+        numbers[1] = 0;
+        long[] expected = sequentialCounts(numbers);
+        checkTotals(expected, DigitCounter.countDigits(numbers), "array");
+        checkTotals(expected, DigitCounter.countDigits(LongStream.of(numbers).parallel()), "parallel stream");
+        checkTotals(new long[10], DigitCounter.countDigits(new long[0]), "empty array");
+    }
+
+    private static void testHistogramMerge() {
+        DigitHistogram left = new DigitHistogram();
+        DigitHistogram right = new DigitHistogram();
+        left.accept(11);
+        right.accept(202);
+        right.addAll(new int[]{0, 0, 0, 1, 0, 0, 0, 0, 0, 0});
+        checkTotals(new long[]{1, 2, 2, 1, 0, 0, 0, 0, 0, 0}, left.merge(right).getCounts(), "merged histogram");
+    }
+
+    private static void testBinaryFile() throws IOException {
+        long[] numbers = {5, -5_000, Long.MAX_VALUE, 0};
+        Path file = Files.createTempFile("digits", ".bin");
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(numbers.length * Long.BYTES);
+            LongStream.of(numbers).forEach(buffer::putLong);
+            Files.write(file, buffer.array());
+            checkTotals(sequentialCounts(numbers), DigitCounter.countDigitsInBinaryFile(file), "binary file");
+            // A trailing partial number means the file is not a sequence of longs
+            Files.write(file, new byte[Long.BYTES + 1]);
+            TestSupport.expect(IOException.class, () -> DigitCounter.countDigitsInBinaryFile(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Leading zeros are skipped like String.valueOf would, but an all-zero number still has one digit
+    private static void testTextFile() throws IOException {
+        Path file = Files.createTempFile("digits", ".txt");
+        try {
+            Files.write(file, "12, -007\n000 abc 98\t4".getBytes(StandardCharsets.US_ASCII));
+            long[] expected = sequentialCounts(new long[]{12, 7, 0, 98, 4});
+            checkTotals(expected, DigitCounter.countDigitsInTextFile(file), "text file");
+            Files.write(file, new byte[0]);
+            checkTotals(new long[10], DigitCounter.countDigitsInTextFile(file), "empty text file");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static long[] sequentialCounts(long[] numbers) {
+        long[] totals = new long[10];
+        for (long number : numbers) {
+            int[] counts = DigitCounter.countDigits(number);
+            for (int digit = 0; digit < 10; digit++) {
+                totals[digit] += counts[digit];
+            }
+        }
+        return totals;
+    }
+
+    private static void checkTotals(long[] expected, long[] actual, String input) {
+        TestSupport.check(Arrays.equals(expected, actual), "Digit totals for " + input + ": expected "
+                + Arrays.toString(expected) + " but was " + Arrays.toString(actual));
+    }
+
+    private static void check(int[] expected, int[] actual, Object input) {
+        if (!Arrays.equals(expected, actual)) {
+            throw new AssertionError("Digit counts for " + input + ": expected " + Arrays.toString(expected)
+                    + " but was " + Arrays.toString(actual));
+        }
+    }
+}
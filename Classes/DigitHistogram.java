@@ -0,0 +1,51 @@
+import java.util.function.LongConsumer;
+
+// Накопичувач частот цифр для довільної кількості чисел; не потокобезпечний, для паралельної роботи - merge()
+public class DigitHistogram implements LongConsumer {
+
+    // int-лічильники скидаються у long раніше, ніж можуть переповнитися (до 19 цифр на число)
+    private static final int FLUSH_INTERVAL = 1 << 26;
+
+    private final long[] totals = new long[10];
+    private final int[] pending = new int[10];
+    private int pendingNumbers;
+
+    @Override
+    public void accept(long number) {
+        DigitCounter.countDigits(number, pending);
+        if (++pendingNumbers == FLUSH_INTERVAL) {
+            flush();
+        }
+    }
+
+    public void addAll(long[] counts) {
+        for (int digit = 0; digit < 10; digit++) {
+            totals[digit] += counts[digit];
+        }
+    }
+
+    public void addAll(int[] counts) {
+        for (int digit = 0; digit < 10; digit++) {
+            totals[digit] += counts[digit];
+        }
+    }
+
+    public DigitHistogram merge(DigitHistogram other) {
+        other.flush();
+        addAll(other.totals);
+        return this;
+    }
+
+    public long[] getCounts() {
+        flush();
+        return totals.clone();
+    }
+
+    private void flush() {
+        for (int digit = 0; digit < 10; digit++) {
+            totals[digit] += pending[digit];
+            pending[digit] = 0;
+        }
+        pendingNumbers = 0;
+    }
+}
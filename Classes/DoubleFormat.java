@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Writes doubles in the same text form as Double.toString without creating a String.
+// Values that are short decimals in plain-notation range (integers, or at most MAX_FRACTION_DIGITS
+// fraction digits) are written digit by digit; everything else falls back to Double.toString.
+// This is not a full shortest-digits algorithm like Ryu or Schubfach, but report values are mostly short.
+public final class DoubleFormat {
+
+    private static final int MAX_FRACTION_DIGITS = 4;
+    private static final double[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000};
+    private static final double MAX_PLAIN = 1e7;  // Double.toString switches to E notation here
+    private static final double MIN_PLAIN = 1e-3; // and below this
+    private static final int NOT_SHORT = -1;
+
+    private DoubleFormat() {
+    }
+
+    public static StringBuilder append(StringBuilder out, double value) {
+        try {
+            append((Appendable) out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A StringBuilder never throws
+        }
+        return out;
+    }
+
+    public static void append(Appendable out, double value) throws IOException {
+        double magnitude = Math.abs(value);
+        int digits = fractionDigits(magnitude);
+        if (digits == NOT_SHORT) {
+            if (value == 0) {
+                out.append(Double.doubleToRawLongBits(value) < 0 ? "-0.0" : "0.0");
+            } else {
+                out.append(Double.toString(value));
+            }
+            return;
+        }
+        long unscaled = (long) Math.rint(magnitude * POWERS_OF_TEN[digits]);
+        long divisor = (long) POWERS_OF_TEN[digits];
+        long integer = unscaled / divisor;
+        if (value < 0) {
+            out.append('-');
+        }
+        appendDigits(out, integer, digitCount(integer));
+        out.append('.');
+        // At least one fraction digit, as Double.toString prints
+        appendDigits(out, unscaled % divisor, Math.max(digits, 1));
+    }
+
+    // Number of characters append would write
+    public static int length(double value) {
+        double magnitude = Math.abs(value);
+        int digits = fractionDigits(magnitude);
+        if (digits == NOT_SHORT) {
+            if (value == 0) {
+                return Double.doubleToRawLongBits(value) < 0 ? 4 : 3;
+            }
+            return Double.toString(value).length();
+        }
+        long integer = (long) Math.rint(magnitude * POWERS_OF_TEN[digits]) / (long) POWERS_OF_TEN[digits];
+        return (value < 0 ? 1 : 0) + digitCount(integer) + 1 + Math.max(digits, 1);
+    }
+
+    // Fewest fraction digits that reproduce the value exactly, or NOT_SHORT
+    private static int fractionDigits(double magnitude) {
+        if (magnitude >= MIN_PLAIN && magnitude < MAX_PLAIN) {
+            for (int digits = 0; digits <= MAX_FRACTION_DIGITS; digits++) {
+                double scaled = Math.rint(magnitude * POWERS_OF_TEN[digits]);
+                // Correctly rounded division: equality means this decimal parses back to exactly the value
+                if (scaled / POWERS_OF_TEN[digits] == magnitude) {
+                    return digits;
+                }
+            }
+        }
+        return NOT_SHORT;
+    }
+
+    private static int digitCount(long value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    // Writes exactly width digits, with leading zeros
+    private static void appendDigits(Appendable out, long value, int width) throws IOException {
+        long power = 1;
+        for (int i = 1; i < width; i++) {
+            power *= 10;
+        }
+        for (; power > 0; power /= 10) {
+            out.append((char) ('0' + value / power % 10));
+        }
+    }
+}
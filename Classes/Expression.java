@@ -0,0 +1,398 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Arithmetic expression compiled once into flat stack-machine code and then evaluated any number of
+// times against double[] variable bindings without allocating.
+// Supports + - * / % ^ (right-associative), unary minus, parentheses, the constants pi and e,
+// variables named at compile time and the functions listed in FUNCTIONS. Division follows IEEE
+// rules (x / 0 is infinite), unlike Calculator.divide.
+// An Expression is immutable and thread-safe; each thread evaluates through its own Evaluator.
+public final class Expression {
+
+    private static final int PUSH = 0;
+    private static final int LOAD = 1;
+    private static final int ADD = 2;
+    private static final int SUBTRACT = 3;
+    private static final int MULTIPLY = 4;
+    private static final int DIVIDE = 5;
+    private static final int REMAINDER = 6;
+    private static final int POWER = 7;
+    private static final int NEGATE = 8;
+    private static final int CALL = 9;
+
+    private static final String[] FUNCTIONS = {
+            "abs", "sqrt", "cbrt", "exp", "ln", "log10", "sin", "cos", "tan", "asin", "acos", "atan",
+            "floor", "ceil", "round", "min", "max", "pow", "atan2", "hypot"
+    };
+    private static final int FIRST_BINARY_FUNCTION = 15; // min and everything after it take two arguments
+
+    private final String source;
+    private final String[] variables;
+    private final int[] code;
+    private final double[] constants;
+    private final int maxStackDepth;
+
+    private Expression(String source, String[] variables, int[] code, double[] constants, int maxStackDepth) {
+        this.source = source;
+        this.variables = variables;
+        this.code = code;
+        this.constants = constants;
+        this.maxStackDepth = maxStackDepth;
+    }
+
+    public static Expression compile(String source, String... variables) {
+        return new Compiler(source, variables.clone()).compile();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String[] getVariables() {
+        return variables.clone();
+    }
+
+    public Evaluator evaluator() {
+        return new Evaluator();
+    }
+
+    // Convenience for one-off use; allocates a stack per call
+    public double evaluate(double... values) {
+        return evaluator().evaluate(values);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    // Reusable evaluation state for one thread
+    public final class Evaluator {
+
+        private final double[] stack = new double[Math.max(1, maxStackDepth)];
+
+        private Evaluator() {
+        }
+
+        // values[i] binds the i-th variable name given to compile()
+        public double evaluate(double[] values) {
+            if (values.length < variables.length) {
+                throw new IllegalArgumentException("Expected " + variables.length + " variable values but got " + values.length);
+            }
+            double[] stack = this.stack;
+            int top = -1;
+            int[] code = Expression.this.code;
+            for (int pc = 0; pc < code.length; pc++) {
+                switch (code[pc]) {
+                    case PUSH:
+                        stack[++top] = constants[code[++pc]];
+                        break;
+                    case LOAD:
+                        stack[++top] = values[code[++pc]];
+                        break;
+                    case ADD:
+                        stack[top - 1] += stack[top--];
+                        break;
+                    case SUBTRACT:
+                        stack[top - 1] -= stack[top--];
+                        break;
+                    case MULTIPLY:
+                        stack[top - 1] *= stack[top--];
+                        break;
+                    case DIVIDE:
+                        stack[top - 1] /= stack[top--];
+                        break;
+                    case REMAINDER:
+                        stack[top - 1] %= stack[top--];
+                        break;
+                    case POWER:
+                        stack[top - 1] = Math.pow(stack[top - 1], stack[top--]);
+                        break;
+                    case NEGATE:
+                        stack[top] = -stack[top];
+                        break;
+                    case CALL:
+                        int function = code[++pc];
+                        if (function >= FIRST_BINARY_FUNCTION) {
+                            stack[top - 1] = call2(function, stack[top - 1], stack[top]);
+                            top--;
+                        } else {
+                            stack[top] = call1(function, stack[top]);
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException("Corrupt expression code at " + pc);
+                }
+            }
+            return stack[0];
+        }
+
+        // Row-wise evaluation over column arrays: columns[v][row] is the value of variable v
+        public void evaluate(double[][] columns, double[] out) {
+            if (columns.length < variables.length) {
+                throw new IllegalArgumentException("Expected " + variables.length + " columns but got " + columns.length);
+            }
+            double[] row = new double[variables.length];
+            for (int i = 0; i < out.length; i++) {
+                for (int v = 0; v < row.length; v++) {
+                    row[v] = columns[v][i];
+                }
+                out[i] = evaluate(row);
+            }
+        }
+    }
+
+    private static double call1(int function, double x) {
+        switch (function) {
+            case 0: return Math.abs(x);
+            case 1: return Math.sqrt(x);
+            case 2: return Math.cbrt(x);
+            case 3: return Math.exp(x);
+            case 4: return Math.log(x);
+            case 5: return Math.log10(x);
+            case 6: return Math.sin(x);
+            case 7: return Math.cos(x);
+            case 8: return Math.tan(x);
+            case 9: return Math.asin(x);
+            case 10: return Math.acos(x);
+            case 11: return Math.atan(x);
+            case 12: return Math.floor(x);
+            case 13: return Math.ceil(x);
+            case 14: return Math.rint(x);
+            default: throw new IllegalStateException("Unknown function " + function);
+        }
+    }
+
+    private static double call2(int function, double x, double y) {
+        switch (function) {
+            case 15: return Math.min(x, y);
+            case 16: return Math.max(x, y);
+            case 17: return Math.pow(x, y);
+            case 18: return Math.atan2(x, y);
+            case 19: return Math.hypot(x, y);
+            default: throw new IllegalStateException("Unknown function " + function);
+        }
+    }
+
+    // Recursive-descent parser that emits code directly:
+    //   expression = term { ("+" | "-") term }
+    //   term       = unary { ("*" | "/" | "%") unary }
+    //   unary      = "-" unary | power
+    //   power      = primary [ "^" unary ]
+    //   primary    = number | name | name "(" expression { "," expression } ")" | "(" expression ")"
+    private static class Compiler {
+
+        private final String source;
+        private final String[] variables;
+        private final List<Double> constants = new ArrayList<>();
+        private int[] code = new int[16];
+        private int length;
+        private int position;
+        private int depth;
+        private int maxDepth;
+
+        Compiler(String source, String[] variables) {
+            this.source = source;
+            this.variables = variables;
+        }
+
+        Expression compile() {
+            expression();
+            skipWhitespace();
+            if (position < source.length()) {
+                throw error("Unexpected '" + source.charAt(position) + "'");
+            }
+            double[] values = new double[constants.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = constants.get(i);
+            }
+            return new Expression(source, variables, Arrays.copyOf(code, length), values, maxDepth);
+        }
+
+        private void expression() {
+            term();
+            while (true) {
+                if (accept('+')) {
+                    term();
+                    emitBinary(ADD);
+                } else if (accept('-')) {
+                    term();
+                    emitBinary(SUBTRACT);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void term() {
+            unary();
+            while (true) {
+                if (accept('*')) {
+                    unary();
+                    emitBinary(MULTIPLY);
+                } else if (accept('/')) {
+                    unary();
+                    emitBinary(DIVIDE);
+                } else if (accept('%')) {
+                    unary();
+                    emitBinary(REMAINDER);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void unary() {
+            if (accept('-')) {
+                unary();
+                emit(NEGATE);
+            } else {
+                accept('+');
+                power();
+            }
+        }
+
+        private void power() {
+            primary();
+            if (accept('^')) {
+                unary(); // Right-associative: 2^3^2 = 2^(3^2), and 2^-1 is allowed
+                emitBinary(POWER);
+            }
+        }
+
+        private void primary() {
+            skipWhitespace();
+            if (position >= source.length()) {
+                throw error("Unexpected end of expression");
+            }
+            char c = source.charAt(position);
+            if (accept('(')) {
+                expression();
+                expect(')');
+            } else if (Character.isDigit(c) || c == '.') {
+                number();
+            } else if (Character.isLetter(c) || c == '_') {
+                name();
+            } else {
+                throw error("Unexpected '" + c + "'");
+            }
+        }
+
+        private void number() {
+            int start = position;
+            while (position < source.length()
+                    && (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.')) {
+                position++;
+            }
+            if (position < source.length() && (source.charAt(position) == 'e' || source.charAt(position) == 'E')) {
+                int exponent = position + 1;
+                if (exponent < source.length() && (source.charAt(exponent) == '+' || source.charAt(exponent) == '-')) {
+                    exponent++;
+                }
+                if (exponent < source.length() && Character.isDigit(source.charAt(exponent))) {
+                    position = exponent;
+                    while (position < source.length() && Character.isDigit(source.charAt(position))) {
+                        position++;
+                    }
+                }
+            }
+            try {
+                pushConstant(Double.parseDouble(source.substring(start, position)));
+            } catch (NumberFormatException e) {
+                String text = source.substring(start, position);
+                position = start;
+                throw error("Invalid number '" + text + "'");
+            }
+        }
+
+        private void name() {
+            int start = position;
+            while (position < source.length()
+                    && (Character.isLetterOrDigit(source.charAt(position)) || source.charAt(position) == '_')) {
+                position++;
+            }
+            String name = source.substring(start, position);
+            if (accept('(')) {
+                int function = Arrays.asList(FUNCTIONS).indexOf(name);
+                if (function < 0) {
+                    position = start;
+                    throw error("Unknown function '" + name + "'");
+                }
+                int arity = function >= FIRST_BINARY_FUNCTION ? 2 : 1;
+                for (int i = 0; i < arity; i++) {
+                    if (i > 0) {
+                        expect(',');
+                    }
+                    expression();
+                }
+                expect(')');
+                emit(CALL, function);
+                depth -= arity - 1;
+                return;
+            }
+            int variable = Arrays.asList(variables).indexOf(name);
+            if (variable >= 0) {
+                emit(LOAD, variable);
+                push();
+            } else if (name.equals("pi")) {
+                pushConstant(Math.PI);
+            } else if (name.equals("e")) {
+                pushConstant(Math.E);
+            } else {
+                position = start;
+                throw error("Unknown variable '" + name + "'");
+            }
+        }
+
+        private void pushConstant(double value) {
+            emit(PUSH, constants.size());
+            constants.add(value);
+            push();
+        }
+
+        private void push() {
+            maxDepth = Math.max(maxDepth, ++depth);
+        }
+
+        private void emitBinary(int opcode) {
+            emit(opcode);
+            depth--;
+        }
+
+        private void emit(int... words) {
+            if (length + words.length > code.length) {
+                code = Arrays.copyOf(code, code.length * 2 + words.length);
+            }
+            for (int word : words) {
+                code[length++] = word;
+            }
+        }
+
+        private boolean accept(char c) {
+            skipWhitespace();
+            if (position < source.length() && source.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!accept(c)) {
+                throw error(position < source.length() ? "Expected '" + c + "' but found '" + source.charAt(position) + "'"
+                        : "Expected '" + c + "' at end of expression");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " in: " + source);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+public class ExpressionTest {
+
+    public static void test() {
+        testPrecedenceAndAssociativity();
+        testFunctionsAndConstants();
+        testVariables();
+        testBulkEvaluation();
+        testParseErrors();
+    }
+
+    private static void testPrecedenceAndAssociativity() {
+        checkValue("1 + 2 * 3", 7);
+        checkValue("(1 + 2) * 3", 9);
+        checkValue("10 - 4 - 3", 3);
+        checkValue("64 / 4 / 2", 8);
+        checkValue("7 % 4 * 2", 6);
+        checkValue("2 ^ 3 ^ 2", 512);
+        checkValue("-2 ^ 2", -4);
+        checkValue("2 ^ -1", 0.5);
+        checkValue("--3", 3);
+        checkValue("1.5e3 + 2E-1", 1500.2);
+        checkValue(".5 * 4", 2);
+        checkValue("1 / 0", Double.POSITIVE_INFINITY);
+        TestSupport.check(Double.isNaN(Expression.compile("0 / 0").evaluate()), "0 / 0 is NaN");
+    }
+
+    private static void testFunctionsAndConstants() {
+        checkValue("abs(-3) + sqrt(16) + cbrt(27)", 10);
+        checkValue("ln(e) + log10(1000) + exp(0)", 5);
+        checkValue("floor(2.7) + ceil(2.1) + round(2.4)", 7);
+        checkValue("round(2.5) + round(3.5)", 6); // Half to even, like Math.rint
+        checkValue("min(3, 1 + 1) + max(-1, -2)", 1);
+        checkValue("pow(2, 10) + hypot(3, 4)", 1029);
+        checkValue("atan2(1, 1) * 4", Math.PI);
+        checkValue("cos(pi) + sin(0) + tan(0)", -1);
+        checkValue("asin(1) + acos(1) + atan(0)", Math.PI / 2);
+        checkValue("max(min(1, 2), sqrt(pow(3, 2)))", 3);
+    }
+
+    private static void testVariables() {
+        Expression expression = Expression.compile("a * x ^ 2 + b * x + c", "a", "b", "c", "x");
+        TestSupport.check(expression.getVariables().length == 4, "variables are kept in order");
+        TestSupport.check(expression.evaluate(1, -3, 2, 5) == 12, "quadratic at x = 5");
+        Expression.Evaluator evaluator = expression.evaluator();
+        TestSupport.check(evaluator.evaluate(new double[]{2, 0, -8, 2}) == 0, "evaluator reuse, first call");
+        TestSupport.check(evaluator.evaluate(new double[]{0, 1, 1, 9}) == 10, "evaluator reuse, second call");
+        // A variable named like a constant shadows it
+        TestSupport.check(Expression.compile("e * 2", "e").evaluate(4) == 8, "variable e shadows the constant");
+        // Four variables need four values
+        TestSupport.expect(IllegalArgumentException.class, () -> expression.evaluate(1, 2));
+    }
+
+    private static void testBulkEvaluation() {
+        Expression expression = Expression.compile("hypot(x, y) - z", "x", "y", "z");
+        double[][] columns = {{3, 5, 8}, {4, 12, 15}, {0, 1, 17}};
+        double[] out = new double[3];
+        expression.evaluator().evaluate(columns, out);
+        TestSupport.check(out[0] == 5 && out[1] == 12 && out[2] == 0, "row-wise evaluation over columns");
+        // Three variables need three columns
+        TestSupport.expect(IllegalArgumentException.class,
+                () -> expression.evaluator().evaluate(new double[2][3], out));
+    }
+
+    private static void testParseErrors() {
+        checkError("1 +", "Unexpected end of expression at position 3");
+        checkError("1 2", "Unexpected '2' at position 2");
+        checkError("(1 + 2", "Expected ')' at end of expression");
+        checkError("foo(1)", "Unknown function 'foo' at position 0");
+        checkError("x + y", "Unknown variable 'y' at position 4", "x");
+        checkError("min(1)", "Expected ','");
+        checkError("sqrt(1, 2)", "Expected ')' but found ','");
+        checkError("1..2", "Invalid number '1..2' at position 0");
+        checkError("2 * # 3", "Unexpected '#' at position 4");
+        checkError("", "Unexpected end of expression at position 0");
+    }
+
+    private static void checkValue(String source, double expected) {
+        double actual = Expression.compile(source).evaluate();
+        TestSupport.check(Math.abs(actual - expected) <= 1e-12 * Math.max(1, Math.abs(expected)) || actual == expected,
+                source + " = " + actual + ", expected " + expected);
+    }
+
+    private static void checkError(String source, String expectedMessage, String... variables) {
+        try {
+            Expression.compile(source, variables);
+        } catch (IllegalArgumentException e) {
+            TestSupport.check(e.getMessage().contains(expectedMessage),
+                    "'" + source + "' failed with: " + e.getMessage());
+            return;
+        }
+        throw new AssertionError("Expected a parse error for '" + source + "'");
+    }
+}
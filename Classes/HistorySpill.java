@@ -0,0 +1,58 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Appends entries evicted from a history to a text file, one line each. Lines are flushed in batches
+// of BATCH_SIZE and on flush() or close(), so a history that is never closed loses at most one batch.
+class HistorySpill implements Closeable, Flushable {
+
+    static final int BATCH_SIZE = 64;
+
+    private final Path file;
+    private Writer writer;
+    private int pending;
+
+    HistorySpill(Path file) {
+        this.file = file;
+    }
+
+    synchronized void write(Command evicted) {
+        try {
+            if (writer == null) {
+                writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            }
+            writer.write(evicted.toString());
+            writer.write(System.lineSeparator());
+            if (++pending == BATCH_SIZE) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill command history to " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        pending = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        pending = 0;
+    }
+}
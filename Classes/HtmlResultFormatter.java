@@ -1,13 +1,12 @@
+import java.io.IOException;
+
 public class HtmlResultFormatter extends ResultFormatter {
 
     @Override
-    public String formatResult(CalculationResult result) {
-        return "<html>" +
-                "<head><title>" + result.getType() + " Result</title></head>" +
-                "<body>" +
-                "<h1>" + result.getType() + "</h1>" +
-                "<p>Value: " + result.getValue() + "</p>" +
-                "</body>" +
-                "</html>";
+    public void formatResult(CalculationResult result, Appendable out) throws IOException {
+        out.append("<html><head><title>").append(result.getType()).append(" Result</title></head><body><h1>")
+                .append(result.getType()).append("</h1><p>Value: ");
+        DoubleFormat.append(out, result.getValue());
+        out.append("</p></body></html>");
     }
 }
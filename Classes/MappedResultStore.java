@@ -0,0 +1,319 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Off-heap result archive backed by FileChannel.map. Parameters and results sit in fixed-width
+// records, so any result is read by index without deserializing the rest.
+//
+// Layout: a 64-byte header (magic, version, parameter count, result count, results offset),
+// the parameters as raw doubles, then 16-byte result records (double value, int type code,
+// 4 bytes padding) mapped in 1 GiB segments. Type names live in a "<file>.types" sidecar,
+// one per line, where the line number is the type code.
+//
+// One writer may append, enforced with a file lock; any number may open the store read-only. The
+// header result count is published with release semantics after the record and its type, and read
+// with acquire semantics, so readers never see half-written entries; they pick up new ones via
+// refresh(). The file can be longer than the data, the count is authoritative.
+public class MappedResultStore implements Closeable {
+
+    private static final int MAGIC = 0x5041524D; // "PARM"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int COUNT_OFFSET = 16;
+    private static final int RESULTS_OFFSET_OFFSET = 24;
+    private static final int RECORD_SIZE = 16;
+    private static final int SEGMENT_SHIFT = 26; // log2 of the records per segment: 64M records, 1 GiB
+    private static final long SEGMENT_BYTES = (long) RECORD_SIZE << SEGMENT_SHIFT;
+    private static final long INITIAL_SEGMENT_BYTES = 1 << 20;
+    private static final int NULL_TYPE = -1;
+    private static final VarHandle COUNT = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path file;
+    private final Path typesFile;
+    private final FileChannel channel;
+    private final boolean writable;
+    private final MappedByteBuffer header;
+    private final int parameterCount;
+    private final long resultsOffset;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final List<String> types = new ArrayList<>();
+    private final Map<String, Integer> codesByType = new HashMap<>();
+    private long size;
+
+    private MappedResultStore(Path file, FileChannel channel, boolean writable, double[] newParameters)
+            throws IOException {
+        this.file = file;
+        this.typesFile = file.resolveSibling(file.getFileName() + ".types");
+        this.channel = channel;
+        this.writable = writable;
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        if (newParameters != null) {
+            this.parameterCount = newParameters.length;
+            this.resultsOffset = align(HEADER_SIZE + (long) parameterCount * Double.BYTES);
+            this.header = channel.map(mode, 0, resultsOffset);
+            header.putInt(0, MAGIC);
+            header.putShort(4, VERSION);
+            header.putInt(8, parameterCount);
+            COUNT.setRelease(header, COUNT_OFFSET, 0L);
+            header.putLong(RESULTS_OFFSET_OFFSET, resultsOffset);
+            for (int i = 0; i < parameterCount; i++) {
+                header.putDouble(HEADER_SIZE + i * Double.BYTES, newParameters[i]);
+            }
+            Files.write(typesFile, new byte[0]);
+        } else {
+            MappedByteBuffer fixed = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (fixed.getInt(0) != MAGIC) {
+                throw new StreamCorruptedException("Not a mapped result store: " + file);
+            }
+            if (fixed.getShort(4) != VERSION) {
+                throw new StreamCorruptedException("Unsupported store version " + fixed.getShort(4) + ": " + file);
+            }
+            this.parameterCount = fixed.getInt(8);
+            this.resultsOffset = fixed.getLong(RESULTS_OFFSET_OFFSET);
+            this.header = channel.map(mode, 0, resultsOffset);
+            reloadTypes();
+        }
+        this.size = (long) COUNT.getAcquire(header, COUNT_OFFSET);
+        mapSegments(size);
+    }
+
+    public static MappedResultStore create(Path file, double[] parameters) throws IOException {
+        // Not truncated on open: a store that another writer holds must be left intact
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        return open(file, channel, true, parameters.clone());
+    }
+
+    public static MappedResultStore openForAppend(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return open(file, channel, true, null);
+    }
+
+    public static MappedResultStore openReadOnly(Path file) throws IOException {
+        return open(file, FileChannel.open(file, StandardOpenOption.READ), false, null);
+    }
+
+    public static MappedResultStore write(Path file, ParametersAndResults data) throws IOException {
+        MappedResultStore store = create(file, data.getParameters());
+        ResultColumns results = data.getResultColumns();
+        for (int i = 0; i < results.size(); i++) {
+            store.append(results.getType(i), results.getValue(i));
+        }
+        return store;
+    }
+
+    private static MappedResultStore open(Path file, FileChannel channel, boolean writable, double[] parameters)
+            throws IOException {
+        try {
+            if (writable) {
+                lockForWriting(file, channel);
+                if (parameters != null) {
+                    channel.truncate(0);
+                }
+            }
+            return new MappedResultStore(file, channel, writable, parameters);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // The lock is released when the channel is closed
+    private static void lockForWriting(Path file, FileChannel channel) throws IOException {
+        boolean locked;
+        try {
+            locked = channel.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            locked = false; // Held by this JVM through another channel
+        }
+        if (!locked) {
+            throw new IOException("Result store is already open for appending: " + file);
+        }
+    }
+
+    public long append(CalculationResult result) throws IOException {
+        return append(result.getType(), result.getValue());
+    }
+
+    // Returns the index of the new result
+    public long append(String type, double value) throws IOException {
+        if (!writable) {
+            throw new IllegalStateException("Store is open read-only: " + file);
+        }
+        long index = size;
+        MappedByteBuffer segment = segmentForWrite(index);
+        int offset = recordOffset(index);
+        segment.putDouble(offset, value);
+        segment.putInt(offset + Double.BYTES, typeCode(type));
+        size = index + 1;
+        COUNT.setRelease(header, COUNT_OFFSET, size);
+        return index;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public double getValue(long index) {
+        checkIndex(index);
+        return segment(index).getDouble(recordOffset(index));
+    }
+
+    public String getType(long index) throws IOException {
+        checkIndex(index);
+        int code = segment(index).getInt(recordOffset(index) + Double.BYTES);
+        if (code == NULL_TYPE) {
+            return null;
+        }
+        if (code >= types.size()) {
+            reloadTypes();
+        }
+        return types.get(code);
+    }
+
+    public CalculationResult get(long index) throws IOException {
+        return new CalculationResult(getType(index), getValue(index));
+    }
+
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    public double getParameter(int index) {
+        if (index < 0 || index >= parameterCount) {
+            throw new IndexOutOfBoundsException("Parameter " + index + " out of bounds for length " + parameterCount);
+        }
+        return header.getDouble(HEADER_SIZE + index * Double.BYTES);
+    }
+
+    public double[] getParameters() {
+        double[] parameters = new double[parameterCount];
+        for (int i = 0; i < parameterCount; i++) {
+            parameters[i] = header.getDouble(HEADER_SIZE + i * Double.BYTES);
+        }
+        return parameters;
+    }
+
+    // Picks up results appended by another process since the last call; returns true if there were any
+    public boolean refresh() throws IOException {
+        long published = (long) COUNT.getAcquire(header, COUNT_OFFSET);
+        if (published == size) {
+            return false;
+        }
+        mapSegments(published);
+        size = published;
+        return true;
+    }
+
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        header.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writable) {
+            force();
+        }
+        channel.close();
+    }
+
+    private int typeCode(String type) throws IOException {
+        if (type == null) {
+            return NULL_TYPE;
+        }
+        Integer code = codesByType.get(type);
+        if (code != null) {
+            return code;
+        }
+        if (type.indexOf('\n') >= 0 || type.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Type names cannot contain line breaks: " + type);
+        }
+        // The name is on disk before any record refers to it
+        Files.write(typesFile, (type + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        code = types.size();
+        types.add(type);
+        codesByType.put(type, code);
+        return code;
+    }
+
+    private void reloadTypes() throws IOException {
+        types.clear();
+        codesByType.clear();
+        for (String type : Files.readAllLines(typesFile, StandardCharsets.UTF_8)) {
+            codesByType.put(type, types.size());
+            types.add(type);
+        }
+    }
+
+    private MappedByteBuffer segmentForWrite(long index) throws IOException {
+        int segmentIndex = (int) (index >>> SEGMENT_SHIFT);
+        long needed = (long) recordOffset(index) + RECORD_SIZE;
+        if (segmentIndex < segments.size() && segments.get(segmentIndex).capacity() >= needed) {
+            return segments.get(segmentIndex);
+        }
+        // Segments grow by doubling up to 1 GiB so small stores stay small on disk
+        long capacity = segmentIndex < segments.size() ? segments.get(segmentIndex).capacity() : 0;
+        long newCapacity = Math.min(SEGMENT_BYTES, Math.max(INITIAL_SEGMENT_BYTES, Math.max(needed, capacity * 2)));
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE,
+                resultsOffset + segmentIndex * SEGMENT_BYTES, newCapacity);
+        if (segmentIndex < segments.size()) {
+            segments.set(segmentIndex, segment);
+        } else {
+            segments.add(segment);
+        }
+        return segment;
+    }
+
+    // Maps exactly enough to cover count records; already fully mapped segments are kept
+    private void mapSegments(long count) throws IOException {
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        long remaining = count;
+        for (int segmentIndex = 0; remaining > 0; segmentIndex++) {
+            long bytes = Math.min(SEGMENT_BYTES, remaining * RECORD_SIZE);
+            if (segmentIndex >= segments.size() || segments.get(segmentIndex).capacity() < bytes) {
+                MappedByteBuffer segment = channel.map(mode, resultsOffset + segmentIndex * SEGMENT_BYTES, bytes);
+                if (segmentIndex < segments.size()) {
+                    segments.set(segmentIndex, segment);
+                } else {
+                    segments.add(segment);
+                }
+            }
+            remaining -= bytes / RECORD_SIZE;
+        }
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments.get((int) (index >>> SEGMENT_SHIFT));
+    }
+
+    private static int recordOffset(long index) {
+        return (int) (index & ((1L << SEGMENT_SHIFT) - 1)) * RECORD_SIZE;
+    }
+
+    private void checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Result " + index + " out of bounds for size " + size);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE;
+    }
+}
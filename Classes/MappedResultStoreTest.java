@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+public class MappedResultStoreTest {
+
+    public static void test() throws IOException {
+        Path directory = Files.createTempDirectory("mapped-store-test");
+        try {
+            testWriteAndRandomAccess(directory.resolve("results.parm"));
+            testReopenForAppend(directory.resolve("append.parm"));
+            testReaderSeesAppendsAfterRefresh(directory.resolve("shared.parm"));
+            testSingleWriter(directory.resolve("locked.parm"));
+            testRejectsForeignFile(directory.resolve("foreign.parm"));
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    private static void testWriteAndRandomAccess(Path file) throws IOException {
+        ParametersAndResults data = new ParametersAndResults(new double[]{3, 4.5}, new double[0]);
+        for (int i = 0; i < 10_000; i++) {
+            data.addResult(i % 3 == 0 ? null : "type-" + (i % 7), i / 8.0);
+        }
+        MappedResultStore.write(file, data).close();
+        try (MappedResultStore store = MappedResultStore.openReadOnly(file)) {
+            TestSupport.check(Arrays.equals(new double[]{3, 4.5}, store.getParameters()),
+                    "parameters survive a reopen");
+            TestSupport.check(store.size() == 10_000, "size is " + store.size());
+            for (int i : new int[]{0, 1, 4_321, 9_999}) {
+                TestSupport.check(store.getValue(i) == i / 8.0, "value " + i);
+                TestSupport.check(Objects.equals(store.getType(i), data.getResultColumns().getType(i)), "type " + i);
+            }
+            TestSupport.expect(IndexOutOfBoundsException.class, () -> store.getValue(10_000));
+            TestSupport.expect(IllegalStateException.class, () -> store.append("late", 1));
+        }
+    }
+
+    private static void testReopenForAppend(Path file) throws IOException {
+        try (MappedResultStore store = MappedResultStore.create(file, new double[0])) {
+            store.append("first", 1);
+        }
+        try (MappedResultStore store = MappedResultStore.openForAppend(file)) {
+            TestSupport.check(store.append("second", 2) == 1, "append continues after the existing result");
+            TestSupport.check("first".equals(store.getType(0)) && "second".equals(store.getType(1)),
+                    "types after reopen");
+        }
+    }
+
+    private static void testReaderSeesAppendsAfterRefresh(Path file) throws IOException {
+        try (MappedResultStore writer = MappedResultStore.create(file, new double[]{1});
+             MappedResultStore reader = MappedResultStore.openReadOnly(file)) {
+            TestSupport.check(!reader.refresh() && reader.size() == 0, "new store is empty");
+            writer.append("shared", 42);
+            TestSupport.check(reader.refresh() && reader.size() == 1, "reader picks up the append");
+            TestSupport.check(reader.getValue(0) == 42 && "shared".equals(reader.getType(0)),
+                    "reader sees the new result");
+        }
+    }
+
+    // A second writer must fail without truncating or touching the store the first one holds
+    private static void testSingleWriter(Path file) throws IOException {
+        try (MappedResultStore writer = MappedResultStore.create(file, new double[]{7})) {
+            writer.append("kept", 1);
+            TestSupport.expect(IOException.class, () -> MappedResultStore.create(file, new double[0]).close());
+            TestSupport.expect(IOException.class, () -> MappedResultStore.openForAppend(file).close());
+            try (MappedResultStore reader = MappedResultStore.openReadOnly(file)) {
+                TestSupport.check(reader.size() == 1 && reader.getParameters()[0] == 7, "readers ignore the lock");
+            }
+            writer.append("kept", 2);
+            TestSupport.check(writer.size() == 2, "first writer keeps appending");
+        }
+        try (MappedResultStore writer = MappedResultStore.openForAppend(file)) {
+            TestSupport.check(writer.size() == 2, "lock is released on close");
+        }
+    }
+
+    private static void testRejectsForeignFile(Path file) throws IOException {
+        Files.write(file, new byte[128]);
+        TestSupport.expect(StreamCorruptedException.class, () -> MappedResultStore.openReadOnly(file).close());
+    }
+}
@@ -5,6 +5,13 @@ public class MultiplicationCalculator extends AbstractCalculator {
         return a * b;
     }
 
+    @Override
+    protected void calculateRange(double[] a, int aOffset, double[] b, int bOffset, double[] out, int outOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            out[outOffset + i] = a[aOffset + i] * b[bOffset + i];
+        }
+    }
+
     @Override
     public String getType() {
         return "Multiplication Calculator";
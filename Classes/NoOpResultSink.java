@@ -0,0 +1,15 @@
+public final class NoOpResultSink implements ResultSink {
+
+    public static final NoOpResultSink INSTANCE = new NoOpResultSink();
+
+    private NoOpResultSink() {
+    }
+
+    @Override
+    public void publish(double result) {
+    }
+
+    @Override
+    public void publishUndo(double result) {
+    }
+}
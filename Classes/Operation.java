@@ -0,0 +1,43 @@
+public enum Operation {
+    ADD("add"),
+    SUBTRACT("subtract"),
+    MULTIPLY("multiply"),
+    DIVIDE("divide");
+
+    private static final Operation[] VALUES = values();
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    // Compact form used where histories store operations as primitives
+    public static Operation fromCode(byte code) {
+        return VALUES[code];
+    }
+
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    public double apply(double a, double b) {
+        switch (this) {
+            case ADD:
+                return a + b;
+            case SUBTRACT:
+                return a - b;
+            case MULTIPLY:
+                return a * b;
+            case DIVIDE:
+                return a / b;
+            default:
+                throw new IllegalStateException("Unknown operation: " + this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
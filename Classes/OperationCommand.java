@@ -0,0 +1,53 @@
+// One arithmetic operation on two operands. Histories keep operations as primitives and rebind a
+// single instance of this class (a flyweight) when one has to be shown again.
+public class OperationCommand extends UndoableCommand {
+
+    private Operation operation;
+    private double a;
+    private double b;
+
+    public OperationCommand(Operation operation, double a, double b) {
+        set(operation, a, b);
+    }
+
+    OperationCommand set(Operation operation, double a, double b) {
+        this.operation = operation;
+        this.a = a;
+        this.b = b;
+        return this;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public double getA() {
+        return a;
+    }
+
+    public double getB() {
+        return b;
+    }
+
+    @Override
+    public double execute() {
+        return compute(operation, a, b);
+    }
+
+    @Override
+    public double undo() {
+        return compute(operation, a, b); // Result of the operation being reversed
+    }
+
+    static double compute(Operation operation, double a, double b) {
+        if (operation == Operation.DIVIDE && b == 0) {
+            throw new ArithmeticException("Cannot divide by zero.");
+        }
+        return operation.apply(a, b);
+    }
+
+    @Override
+    public String toString() {
+        return operation + " " + a + " " + b;
+    }
+}
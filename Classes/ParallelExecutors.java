@@ -0,0 +1,115 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class ParallelExecutors {
+
+    // -Dparallel.executor=shared|fixed|virtual|work_stealing
+    public static final String MODE_PROPERTY = "parallel.executor";
+
+    public enum Mode {
+        SHARED,       // One process-wide pool sized to availableProcessors(), never shut down by callers
+        FIXED,        // A private pool sized to availableProcessors(), owned by its ParallelProcessing
+        VIRTUAL,      // A new virtual thread per task on Java 21+; the shared pool on older runtimes
+        WORK_STEALING // A private ForkJoinPool in async mode
+    }
+
+    private ParallelExecutors() {
+    }
+
+    public static Mode defaultMode() {
+        String value = System.getProperty(MODE_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return Mode.SHARED;
+        }
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + MODE_PROPERTY + " value: " + value, e);
+        }
+    }
+
+    public static ExecutorService shared() {
+        return SharedPoolHolder.POOL;
+    }
+
+    public static boolean isShared(ExecutorService executorService) {
+        return executorService == SharedPoolHolder.POOL;
+    }
+
+    public static ExecutorService create(Mode mode) {
+        switch (mode) {
+            case SHARED:
+                return shared();
+            case FIXED:
+                return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                        new NamedThreadFactory("parallel-fixed", false));
+            case VIRTUAL:
+                return newVirtualThreadPerTaskExecutor();
+            case WORK_STEALING:
+                return Executors.newWorkStealingPool();
+            default:
+                throw new IllegalArgumentException("Unknown executor mode: " + mode);
+        }
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return VirtualThreadsHolder.FACTORY != null;
+    }
+
+    // Looked up reflectively so the code still compiles and runs on runtimes without virtual threads
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (VirtualThreadsHolder.FACTORY == null) {
+            return shared();
+        }
+        try {
+            return (ExecutorService) VirtualThreadsHolder.FACTORY.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create virtual thread executor", e);
+        }
+    }
+
+    private static class VirtualThreadsHolder {
+        private static final MethodHandle FACTORY = lookup();
+
+        private static MethodHandle lookup() {
+            try {
+                return MethodHandles.publicLookup().findStatic(Executors.class,
+                        "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                System.getLogger(ParallelExecutors.class.getName()).log(System.Logger.Level.WARNING,
+                        "Virtual threads require Java 21 or newer; VIRTUAL mode uses the shared pool instead");
+                return null;
+            }
+        }
+    }
+
+    private static class SharedPoolHolder {
+        private static final ExecutorService POOL = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), new NamedThreadFactory("parallel-shared", true));
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final boolean daemon;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix, boolean daemon) {
+            this.prefix = prefix;
+            this.daemon = daemon;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(daemon);
+            return thread;
+        }
+    }
+}
@@ -1,34 +1,249 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.concurrent.*;
 
 public class ParallelProcessing {
 
-    private ExecutorService executorService = Executors.newFixedThreadPool(4); // Thread pool
+    public static final int DEFAULT_STATISTICS_THRESHOLD = 1 << 16;
+
+    private final ExecutorService executorService;
+    private final boolean ownsExecutor; // Injected and shared pools are never shut down here
+    private int statisticsThreshold = DEFAULT_STATISTICS_THRESHOLD; // Elements per fork/join leaf
+
+    public ParallelProcessing() {
+        this(ParallelExecutors.defaultMode());
+    }
+
+    public ParallelProcessing(ParallelExecutors.Mode mode) {
+        this(ParallelExecutors.create(mode), true);
+    }
+
+    public ParallelProcessing(ExecutorService executorService) {
+        this(Objects.requireNonNull(executorService, "executorService"), false);
+    }
+
+    private ParallelProcessing(ExecutorService executorService, boolean created) {
+        this.executorService = executorService;
+        this.ownsExecutor = created && !ParallelExecutors.isShared(executorService);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Either mode(...) or executor(...), then build(); without either the mode comes from the
+    // parallel.executor system property
+    public static class Builder {
+
+        private ParallelExecutors.Mode mode;
+        private ExecutorService executorService;
+        private int statisticsThreshold = DEFAULT_STATISTICS_THRESHOLD;
+
+        private Builder() {
+        }
+
+        public Builder mode(ParallelExecutors.Mode mode) {
+            this.mode = Objects.requireNonNull(mode, "mode");
+            this.executorService = null;
+            return this;
+        }
+
+        // An injected executor is never shut down by the built instance
+        public Builder executor(ExecutorService executorService) {
+            this.executorService = Objects.requireNonNull(executorService, "executorService");
+            this.mode = null;
+            return this;
+        }
+
+        public Builder statisticsThreshold(int statisticsThreshold) {
+            checkThreshold(statisticsThreshold);
+            this.statisticsThreshold = statisticsThreshold;
+            return this;
+        }
+
+        public ParallelProcessing build() {
+            ParallelProcessing processing = executorService != null
+                    ? new ParallelProcessing(executorService)
+                    : new ParallelProcessing(mode != null ? mode : ParallelExecutors.defaultMode());
+            processing.statisticsThreshold = statisticsThreshold;
+            return processing;
+        }
+    }
 
     public Future<Double> calculateMeanAsync(List<Double> values) {
-        Callable<Double> task = () -> {
+        return meanAsync(values);
+    }
+
+    public Future<Double> findMinAsync(List<Double> values) {
+        return minAsync(values);
+    }
+
+    public Future<Double> findMaxAsync(List<Double> values) {
+        return maxAsync(values);
+    }
+
+    public CompletableFuture<Double> meanAsync(List<Double> values) {
+        return CompletableFuture.supplyAsync(() -> {
             double sum = 0;
             for (double value : values) {
                 sum += value;
             }
             return sum / values.size();
-        };
-        return executorService.submit(task);
+        }, executorService);
     }
 
-    public Future<Double> findMinAsync(List<Double> values) {
-        Callable<Double> task = () -> values.stream().min(Comparator.naturalOrder()).orElseThrow(NoSuchElementException::new);
-        return executorService.submit(task);
+    public CompletableFuture<Double> minAsync(List<Double> values) {
+        return CompletableFuture.supplyAsync(
+                () -> values.stream().min(Comparator.naturalOrder()).orElseThrow(NoSuchElementException::new),
+                executorService);
     }
 
-    public Future<Double> findMaxAsync(List<Double> values) {
-        Callable<Double> task = () -> values.stream().max(Comparator.naturalOrder()).orElseThrow(NoSuchElementException::new);
-        return executorService.submit(task);
+    public CompletableFuture<Double> maxAsync(List<Double> values) {
+        return CompletableFuture.supplyAsync(
+                () -> values.stream().max(Comparator.naturalOrder()).orElseThrow(NoSuchElementException::new),
+                executorService);
+    }
+
+    // Unboxes on the calling thread so the returned future is the one that cancels the fork/join task
+    public CompletableFuture<StatisticsSummary> summaryAsync(List<Double> values) {
+        double[] array = new double[values.size()];
+        int i = 0;
+        for (double value : values) {
+            array[i++] = value;
+        }
+        return summaryAsync(array);
+    }
+
+    // Cancelling or timing out the returned future cancels the root task; subtasks check it before
+    // splitting or summing a leaf, so at most the leaves already running finish
+    public CompletableFuture<StatisticsSummary> summaryAsync(double[] values) {
+        StatisticsTask task = new StatisticsTask(values, statisticsThreshold);
+        CompletableFuture<StatisticsSummary> future = CompletableFuture.supplyAsync(task::invoke, forkJoinPool());
+        future.whenComplete((summary, error) -> {
+            if (error != null) {
+                task.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    // Statistics over a stream of big-endian doubles of any length in constant memory
+    public CompletableFuture<StatisticsSummary> summaryAsync(ReadableByteChannel channel) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new StreamingStatistics().acceptAll(channel).snapshot();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executorService);
+    }
+
+    public CompletableFuture<StatisticsSummary> summaryAsync(double[] values, long timeout, TimeUnit unit) {
+        return summaryAsync(values).orTimeout(timeout, unit);
+    }
+
+    public CompletableFuture<QuantileSketch> quantileSketchAsync(double[] values) {
+        return quantileSketchAsync(values, QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    // Builds one sketch per fork/join leaf and merges them pairwise
+    public CompletableFuture<QuantileSketch> quantileSketchAsync(double[] values, double relativeAccuracy) {
+        QuantileSketchTask task = new QuantileSketchTask(values, statisticsThreshold, relativeAccuracy);
+        CompletableFuture<QuantileSketch> future = CompletableFuture.supplyAsync(task::invoke, forkJoinPool());
+        future.whenComplete((sketch, error) -> {
+            if (error != null) {
+                task.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    public CompletableFuture<double[]> quantilesAsync(double[] values, double... quantiles) {
+        return quantileSketchAsync(values).thenApply(sketch -> sketch.quantiles(quantiles));
+    }
+
+    public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+        return future.orTimeout(timeout, unit);
+    }
+
+    // Completes with all results in order; the first failure, timeout or cancellation cancels the rest
+    public static <T> CompletableFuture<List<T>> allOf(List<? extends CompletableFuture<? extends T>> futures) {
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        CompletableFuture<?>[] array = futures.toArray(new CompletableFuture<?>[0]);
+        CompletableFuture.allOf(array).whenComplete((ignored, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                return;
+            }
+            List<T> values = new ArrayList<>(futures.size());
+            for (CompletableFuture<? extends T> future : futures) {
+                values.add(future.join());
+            }
+            result.complete(values);
+        });
+        for (CompletableFuture<?> future : array) {
+            future.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+                }
+            });
+        }
+        result.whenComplete((ignored, error) -> {
+            if (error != null) {
+                for (CompletableFuture<?> future : array) {
+                    future.cancel(false);
+                }
+            }
+        });
+        return result;
+    }
+
+    // Count, sum, min, max and variance in a single pass split across the fork/join pool
+    public Future<StatisticsSummary> calculateStatisticsAsync(double[] values) {
+        return forkJoinPool().submit(new StatisticsTask(values, statisticsThreshold));
+    }
+
+    public StatisticsSummary calculateStatistics(double[] values) {
+        return forkJoinPool().invoke(new StatisticsTask(values, statisticsThreshold));
+    }
+
+    private ForkJoinPool forkJoinPool() {
+        return executorService instanceof ForkJoinPool ? (ForkJoinPool) executorService : ForkJoinPool.commonPool();
+    }
+
+    public int getStatisticsThreshold() {
+        return statisticsThreshold;
+    }
+
+    public void setStatisticsThreshold(int statisticsThreshold) {
+        checkThreshold(statisticsThreshold);
+        this.statisticsThreshold = statisticsThreshold;
+    }
+
+    private static void checkThreshold(int statisticsThreshold) {
+        if (statisticsThreshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive: " + statisticsThreshold);
+        }
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    public PoolMetrics getPoolMetrics() {
+        return PoolMetrics.of(executorService);
     }
 
     public void shutdownExecutorService() {
+        if (!ownsExecutor) {
+            return;
+        }
         executorService.shutdown();
         try {
             executorService.awaitTermination(5, TimeUnit.SECONDS);
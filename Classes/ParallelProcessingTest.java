@@ -0,0 +1,225 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelProcessingTest {
+
+    public static void test() throws Exception {
+        testExecutorModes();
+        testOnlyOwnedExecutorsAreShutDown();
+        testModeFromSystemProperty();
+        testBuilder();
+        testAsyncSummaryMatchesSequential();
+        testListSummaryCancellation();
+        testTimeout();
+        testAllOfCancelsTheRest();
+    }
+
+    private static void testExecutorModes() throws Exception {
+        List<Double> values = List.of(1.0, 5.0, 3.0);
+        for (ParallelExecutors.Mode mode : ParallelExecutors.Mode.values()) {
+            ParallelProcessing processing = new ParallelProcessing(mode);
+            try {
+                TestSupport.check(processing.meanAsync(values).get() == 3, mode + " mean");
+                TestSupport.check(processing.minAsync(values).get() == 1, mode + " min");
+                TestSupport.check(processing.getPoolMetrics() != null, mode + " metrics");
+            } finally {
+                processing.shutdownExecutorService();
+            }
+        }
+        boolean fallsBack = ParallelExecutors.isShared(ParallelExecutors.create(ParallelExecutors.Mode.VIRTUAL));
+        TestSupport.check(fallsBack != ParallelExecutors.isVirtualThreadSupported(),
+                "VIRTUAL uses the shared pool exactly when virtual threads are missing");
+    }
+
+    // Shared and injected pools outlive the ParallelProcessing that used them
+    private static void testOnlyOwnedExecutorsAreShutDown() throws Exception {
+        ParallelProcessing fixed = new ParallelProcessing(ParallelExecutors.Mode.FIXED);
+        fixed.shutdownExecutorService();
+        TestSupport.check(fixed.getExecutorService().isShutdown(), "FIXED pool is shut down by its owner");
+
+        ParallelProcessing shared = new ParallelProcessing(ParallelExecutors.Mode.SHARED);
+        shared.shutdownExecutorService();
+        TestSupport.check(!ParallelExecutors.shared().isShutdown(), "shared pool stays up");
+        TestSupport.check(shared.meanAsync(List.of(2.0)).get() == 2, "shared pool still runs tasks");
+
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            new ParallelProcessing(pool).shutdownExecutorService();
+            TestSupport.check(!pool.isShutdown(), "injected pool stays up");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void testModeFromSystemProperty() {
+        String previous = System.getProperty(ParallelExecutors.MODE_PROPERTY);
+        try {
+            System.clearProperty(ParallelExecutors.MODE_PROPERTY);
+            TestSupport.check(ParallelExecutors.defaultMode() == ParallelExecutors.Mode.SHARED, "default is SHARED");
+            System.setProperty(ParallelExecutors.MODE_PROPERTY, " work-stealing ");
+            TestSupport.check(ParallelExecutors.defaultMode() == ParallelExecutors.Mode.WORK_STEALING,
+                    "property is trimmed and case-insensitive");
+            System.setProperty(ParallelExecutors.MODE_PROPERTY, "cached");
+            TestSupport.expect(IllegalArgumentException.class, ParallelExecutors::defaultMode);
+        } finally {
+            if (previous == null) {
+                System.clearProperty(ParallelExecutors.MODE_PROPERTY);
+            } else {
+                System.setProperty(ParallelExecutors.MODE_PROPERTY, previous);
+            }
+        }
+    }
+
+    // The last of mode(...) and executor(...) wins
+    private static void testBuilder() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            ParallelProcessing injected = ParallelProcessing.builder()
+                    .mode(ParallelExecutors.Mode.FIXED)
+                    .executor(pool)
+                    .build();
+            TestSupport.check(injected.getExecutorService() == pool, "executor replaces mode");
+            ParallelProcessing shared = ParallelProcessing.builder()
+                    .executor(pool)
+                    .mode(ParallelExecutors.Mode.SHARED)
+                    .statisticsThreshold(10)
+                    .build();
+            TestSupport.check(ParallelExecutors.isShared(shared.getExecutorService()), "mode replaces executor");
+            TestSupport.check(shared.getStatisticsThreshold() == 10, "threshold is applied");
+        } finally {
+            pool.shutdown();
+        }
+        TestSupport.expect(IllegalArgumentException.class, () -> ParallelProcessing.builder().statisticsThreshold(0));
+        TestSupport.expect(NullPointerException.class, () -> ParallelProcessing.builder().mode(null));
+        TestSupport.expect(NullPointerException.class, () -> new ParallelProcessing((ForkJoinPool) null));
+    }
+
+    private static void testAsyncSummaryMatchesSequential() throws Exception {
+        double[] values = randomValues(100_000);
+        List<Double> boxed = new ArrayList<>();
+        for (double value : values) {
+            boxed.add(value);
+        }
+        StatisticsSummary expected = StatisticsSummary.of(values, 0, values.length);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ParallelProcessing processing = ParallelProcessing.builder()
+                    .executor(pool)
+                    .statisticsThreshold(1_000)
+                    .build();
+            checkSummary(expected, processing.summaryAsync(values).get(), "array overload");
+            checkSummary(expected, processing.summaryAsync(boxed).get(), "list overload");
+            checkSummary(expected, processing.calculateStatistics(values), "synchronous");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // The list overload must hand back the future that owns the fork/join task, so cancelling it
+    // stops the work instead of only detaching a later stage
+    private static void testListSummaryCancellation() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            pool.execute(() -> awaitQuietly(release)); // Keeps the only worker busy
+            ParallelProcessing processing = ParallelProcessing.builder().executor(pool).statisticsThreshold(1).build();
+            AtomicBoolean cancelled = new AtomicBoolean();
+            AtomicInteger readsAfterCancel = new AtomicInteger();
+            List<Double> values = new AbstractList<>() {
+                @Override
+                public Double get(int index) {
+                    if (cancelled.get()) {
+                        readsAfterCancel.incrementAndGet();
+                    }
+                    return (double) index;
+                }
+
+                @Override
+                public int size() {
+                    return 10_000;
+                }
+            };
+            CompletableFuture<StatisticsSummary> future = processing.summaryAsync(values);
+            cancelled.set(true);
+            TestSupport.check(future.cancel(true) && future.isCancelled(), "list summary can be cancelled");
+            TestSupport.expect(CancellationException.class, future::join);
+            release.countDown();
+            TestSupport.check(pool.awaitQuiescence(10, TimeUnit.SECONDS), "pool drains after cancellation");
+            TestSupport.check(readsAfterCancel.get() == 0, "no stage ran after cancellation");
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    private static void testTimeout() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            pool.execute(() -> awaitQuietly(release));
+            ParallelProcessing processing = new ParallelProcessing(pool);
+            CompletableFuture<StatisticsSummary> future = processing.summaryAsync(randomValues(1_000), 20,
+                    TimeUnit.MILLISECONDS);
+            try {
+                future.get();
+                throw new AssertionError("Summary should time out while the pool is blocked");
+            } catch (ExecutionException e) {
+                TestSupport.check(e.getCause() instanceof TimeoutException, "timed out: " + e.getCause());
+            }
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    private static void testAllOfCancelsTheRest() {
+        CompletableFuture<Integer> failing = new CompletableFuture<>();
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        CompletableFuture<List<Integer>> all = ParallelProcessing.allOf(List.of(failing, pending));
+        failing.completeExceptionally(new IllegalStateException("boom"));
+        TestSupport.check(all.isCompletedExceptionally(), "allOf fails with its first input");
+        TestSupport.check(pending.isCancelled(), "remaining inputs are cancelled");
+
+        CompletableFuture<List<Integer>> done = ParallelProcessing.allOf(List.of(
+                CompletableFuture.completedFuture(1), CompletableFuture.completedFuture(2)));
+        TestSupport.check(List.of(1, 2).equals(done.join()), "results in input order");
+    }
+
+    static double[] randomValues(int count) {
+        Random random = new Random(42);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextGaussian() * 100 + 5;
+        }
+        return values;
+    }
+
+    static void checkSummary(StatisticsSummary expected, StatisticsSummary actual, String what) {
+        TestSupport.check(expected.getCount() == actual.getCount(), what + " count " + actual.getCount());
+        TestSupport.check(expected.getMin() == actual.getMin() && expected.getMax() == actual.getMax(),
+                what + " min/max " + actual);
+        double tolerance = 1e-9 * Math.max(1, Math.abs(expected.getSum()));
+        TestSupport.check(Math.abs(expected.getSum() - actual.getSum()) <= tolerance, what + " sum " + actual);
+        TestSupport.check(Math.abs(expected.getVariance() - actual.getVariance()) <= 1e-9 * expected.getVariance(),
+                what + " variance " + actual);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
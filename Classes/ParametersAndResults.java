@@ -1,25 +1,98 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ParametersAndResults implements Serializable {
 
+    // Pinned to the value computed for the original class so archives written before it was declared still load
+    private static final long serialVersionUID = -6807207246394598943L;
+
+    // Keeps the original serialized form (a List<CalculationResult>) while results are held in columns
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("parameters", double[].class),
+            new ObjectStreamField("results", List.class)
+    };
+
     private double[] parameters;
-    private List<CalculationResult> results;
+    private transient ResultColumns results;
+    private transient ResultJournal journal;
+    private transient boolean keepResultsInMemory = true;
 
     public ParametersAndResults(double[] parameters, double[] results) {
         this.parameters = parameters;
-        this.results = new ArrayList<>();
+        this.results = new ResultColumns(results.length);
         for (double result : results) {
-            this.results.add(new CalculationResult("Default", result));
+            this.results.add("Default", result);
         }
     }
 
     public void addResult(CalculationResult result) {
-        results.add(result);
+        addResult(result.getType(), result.getValue());
+    }
+
+    public void addResult(String type, double value) {
+        if (journal != null) {
+            try {
+                journal.append(type, value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (keepResultsInMemory) {
+            results.add(type, value);
+        }
+    }
+
+    // From now on every addResult also goes to the journal; without keepInMemory only the journal
+    // holds them, so memory stays flat and results are read back with ResultJournal.replay
+    public void attachJournal(ResultJournal journal, boolean keepInMemory) {
+        this.journal = journal;
+        this.keepResultsInMemory = keepInMemory;
+    }
+
+    public void detachJournal() throws IOException {
+        if (journal != null) {
+            journal.flush();
+        }
+        journal = null;
+        keepResultsInMemory = true;
+    }
+
+    public double[] getParameters() {
+        return parameters;
     }
 
     public List<CalculationResult> getResults() {
+        return results.asList();
+    }
+
+    public ResultColumns getResultColumns() {
         return results;
     }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("parameters", parameters);
+        fields.put("results", new ArrayList<>(results.asList()));
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        parameters = (double[]) fields.get("parameters", null);
+        List<?> list = (List<?>) fields.get("results", null);
+        results = new ResultColumns(list == null ? 0 : list.size());
+        keepResultsInMemory = true;
+        if (list != null) {
+            for (Object element : list) {
+                CalculationResult result = (CalculationResult) element;
+                results.add(result.getType(), result.getValue());
+            }
+        }
+    }
 }
@@ -0,0 +1,55 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Point-in-time view of an executor; -1 means the executor does not expose that figure
+public final class PoolMetrics {
+
+    private final long queueDepth;
+    private final int activeThreads;
+    private final int poolSize;
+    private final long completedTasks;
+
+    public PoolMetrics(long queueDepth, int activeThreads, int poolSize, long completedTasks) {
+        this.queueDepth = queueDepth;
+        this.activeThreads = activeThreads;
+        this.poolSize = poolSize;
+        this.completedTasks = completedTasks;
+    }
+
+    public static PoolMetrics of(ExecutorService executorService) {
+        if (executorService instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executorService;
+            return new PoolMetrics(pool.getQueue().size(), pool.getActiveCount(), pool.getPoolSize(),
+                    pool.getCompletedTaskCount());
+        }
+        if (executorService instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) executorService;
+            return new PoolMetrics(pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount(),
+                    pool.getActiveThreadCount(), pool.getPoolSize(), -1);
+        }
+        return new PoolMetrics(-1, -1, -1, -1);
+    }
+
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getActiveThreads() {
+        return activeThreads;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{queueDepth=" + queueDepth + ", activeThreads=" + activeThreads
+                + ", poolSize=" + poolSize + ", completedTasks=" + completedTasks + "}";
+    }
+}
@@ -0,0 +1,229 @@
+// Mergeable quantile sketch with logarithmic buckets (DDSketch-style).
+// Any quantile it returns is within relativeAccuracy of the exact value at that rank.
+// Memory depends only on the accuracy and value range, never on the count: at the
+// default 1% even the full finite double range fits in about 70k buckets per sign.
+// NaN and infinities have no bucket; they are skipped and only counted in getNonFiniteCount(), so one
+// bad value does not fail a whole parallel run. Magnitudes below Double.MIN_NORMAL (zero and the
+// subnormals) share a single zero bucket and are reported as 0, clamped to [min, max].
+public class QuantileSketch {
+
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final BucketStore positive = new BucketStore();
+    private final BucketStore negative = new BucketStore();
+    private long zeroCount;
+    private long nonFiniteCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY);
+    }
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy must be in (0, 1): " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public static QuantileSketch of(double[] values, int from, int to, double relativeAccuracy) {
+        QuantileSketch sketch = new QuantileSketch(relativeAccuracy);
+        for (int i = from; i < to; i++) {
+            sketch.accept(values[i]);
+        }
+        return sketch;
+    }
+
+    public void accept(double value) {
+        if (!Double.isFinite(value)) {
+            nonFiniteCount++;
+            return;
+        }
+        if (value >= Double.MIN_NORMAL) {
+            positive.add(index(value), 1);
+        } else if (value <= -Double.MIN_NORMAL) {
+            negative.add(index(-value), 1);
+        } else {
+            zeroCount++;
+        }
+        count++;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    public QuantileSketch merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different accuracy: "
+                    + relativeAccuracy + " and " + other.relativeAccuracy);
+        }
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+        nonFiniteCount += other.nonFiniteCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    // Value at zero-based rank floor(q * (count - 1)), q in [0, 1]: the lower of the two neighbours that
+    // linear interpolation would blend, so the median of an even count is the lower middle value
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be in [0, 1]: " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (q * (count - 1));
+        double estimate;
+        if (rank < negative.total) {
+            estimate = -value(negative.indexAtRank(negative.total - 1 - rank));
+        } else if (rank < negative.total + zeroCount) {
+            estimate = 0;
+        } else {
+            estimate = value(positive.indexAtRank(rank - negative.total - zeroCount));
+        }
+        return Math.max(min, Math.min(max, estimate));
+    }
+
+    public double[] quantiles(double... qs) {
+        double[] result = new double[qs.length];
+        for (int i = 0; i < qs.length; i++) {
+            result[i] = quantile(qs[i]);
+        }
+        return result;
+    }
+
+    // Equal-width histogram between min and max; each bucket is counted at its representative value
+    public long[] histogram(int bins) {
+        if (bins < 1) {
+            throw new IllegalArgumentException("Bin count must be positive: " + bins);
+        }
+        long[] histogram = new long[bins];
+        if (count == 0) {
+            return histogram;
+        }
+        double width = (max - min) / bins;
+        for (int i = negative.minIndex; i <= negative.maxIndex && negative.total > 0; i++) {
+            addToBin(histogram, -value(i), negative.get(i), width);
+        }
+        addToBin(histogram, 0, zeroCount, width);
+        for (int i = positive.minIndex; i <= positive.maxIndex && positive.total > 0; i++) {
+            addToBin(histogram, value(i), positive.get(i), width);
+        }
+        return histogram;
+    }
+
+    // Finite values only
+    public long getCount() {
+        return count;
+    }
+
+    public long getNonFiniteCount() {
+        return nonFiniteCount;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    private void addToBin(long[] histogram, double value, long n, double width) {
+        if (n == 0) {
+            return;
+        }
+        int bin = width > 0 ? (int) ((Math.max(min, Math.min(max, value)) - min) / width) : 0;
+        histogram[Math.min(bin, histogram.length - 1)] += n;
+    }
+
+    private int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    // Dense counts for a contiguous index range, grown on demand
+    private static class BucketStore {
+
+        private long[] counts = new long[0];
+        private int offset; // Bucket index stored at counts[0]
+        private int minIndex = Integer.MAX_VALUE;
+        private int maxIndex = Integer.MIN_VALUE;
+        private long total;
+
+        void add(int index, long n) {
+            if (index < minIndex || index > maxIndex) {
+                extend(Math.min(index, minIndex), Math.max(index, maxIndex));
+            }
+            counts[index - offset] += n;
+            total += n;
+        }
+
+        long get(int index) {
+            return counts[index - offset];
+        }
+
+        void merge(BucketStore other) {
+            if (other.total == 0) {
+                return;
+            }
+            extend(Math.min(minIndex, other.minIndex), Math.max(maxIndex, other.maxIndex));
+            for (int i = other.minIndex; i <= other.maxIndex; i++) {
+                counts[i - offset] += other.counts[i - other.offset];
+            }
+            total += other.total;
+        }
+
+        int indexAtRank(long rank) {
+            long seen = 0;
+            for (int i = minIndex; i <= maxIndex; i++) {
+                seen += counts[i - offset];
+                if (seen > rank) {
+                    return i;
+                }
+            }
+            return maxIndex;
+        }
+
+        private void extend(int newMin, int newMax) {
+            if (newMin >= offset && newMax < offset + counts.length) {
+                minIndex = newMin;
+                maxIndex = newMax;
+                return;
+            }
+            // Leave headroom on both sides so a slowly widening range does not copy on every value
+            int span = newMax - newMin + 1;
+            int headroom = Math.max(16, span / 2);
+            int newOffset = newMin - headroom;
+            long[] newCounts = new long[span + 2 * headroom];
+            if (total > 0) {
+                System.arraycopy(counts, minIndex - offset, newCounts, minIndex - newOffset, maxIndex - minIndex + 1);
+            }
+            counts = newCounts;
+            offset = newOffset;
+            minIndex = newMin;
+            maxIndex = newMax;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class QuantileSketchTask extends RecursiveTask<QuantileSketch> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double[] values;
+    private final int from;
+    private final int to;
+    private final int threshold;
+    private final double relativeAccuracy;
+    private final ForkJoinTask<?> root; // Subtasks stop once the task that was submitted is cancelled
+
+    public QuantileSketchTask(double[] values, int threshold, double relativeAccuracy) {
+        this(values, 0, values.length, threshold, relativeAccuracy);
+    }
+
+    public QuantileSketchTask(double[] values, int from, int to, int threshold, double relativeAccuracy) {
+        this(values, from, to, threshold, relativeAccuracy, null);
+    }
+
+    private QuantileSketchTask(double[] values, int from, int to, int threshold, double relativeAccuracy, ForkJoinTask<?> root) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        this.values = values;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.relativeAccuracy = relativeAccuracy;
+        this.root = root != null ? root : this;
+    }
+
+    @Override
+    protected QuantileSketch compute() {
+        if (root.isCancelled()) {
+            throw new CancellationException();
+        }
+        if (to - from <= threshold) {
+            return QuantileSketch.of(values, from, to, relativeAccuracy);
+        }
+        int middle = (from + to) >>> 1;
+        QuantileSketchTask left = new QuantileSketchTask(values, from, middle, threshold, relativeAccuracy, root);
+        QuantileSketchTask right = new QuantileSketchTask(values, middle, to, threshold, relativeAccuracy, root);
+        left.fork();
+        QuantileSketch rightSketch = right.compute();
+        return left.join().merge(rightSketch);
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class QuantileSketchTest {
+
+    private static final double ACCURACY = 0.01;
+
+    public static void test() {
+        testQuantilesWithinRelativeAccuracy();
+        testMergeMatchesSingleSketch();
+        testNonFiniteValuesAreSkipped();
+        testSubnormalsShareTheZeroBucket();
+        testRankAndEdgeCases();
+        testHistogram();
+    }
+
+    // Positive, negative and zero values against the exact value at the same rank
+    private static void testQuantilesWithinRelativeAccuracy() {
+        double[] values = mixedValues(50_000);
+        QuantileSketch sketch = QuantileSketch.of(values, 0, values.length, ACCURACY);
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : new double[]{0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1}) {
+            double exact = sorted[(int) (q * (sorted.length - 1))];
+            double estimate = sketch.quantile(q);
+            TestSupport.check(Math.abs(estimate - exact) <= ACCURACY * Math.abs(exact) + 1e-12,
+                    "q=" + q + ": " + estimate + " vs exact " + exact);
+        }
+        TestSupport.check(sketch.quantile(0) == sorted[0] && sketch.quantile(1) == sorted[sorted.length - 1],
+                "extremes are exact");
+    }
+
+    private static void testMergeMatchesSingleSketch() {
+        double[] values = mixedValues(10_000);
+        QuantileSketch whole = QuantileSketch.of(values, 0, values.length, ACCURACY);
+        QuantileSketch merged = QuantileSketch.of(values, 0, 3_333, ACCURACY)
+                .merge(QuantileSketch.of(values, 3_333, values.length, ACCURACY));
+        TestSupport.check(merged.getCount() == whole.getCount(), "merged count");
+        for (double q = 0; q <= 1; q += 0.05) {
+            TestSupport.check(merged.quantile(q) == whole.quantile(q), "merged q=" + q);
+        }
+        TestSupport.expect(IllegalArgumentException.class, () -> whole.merge(new QuantileSketch(0.05)));
+    }
+
+    // One bad value must not fail the whole parallel task
+    private static void testNonFiniteValuesAreSkipped() {
+        double[] values = new double[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i + 1;
+        }
+        values[10] = Double.NaN;
+        values[5_000] = Double.POSITIVE_INFINITY;
+        values[9_999] = Double.NEGATIVE_INFINITY;
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            QuantileSketch sketch = pool.invoke(new QuantileSketchTask(values, 100, ACCURACY));
+            TestSupport.check(sketch.getCount() == values.length - 3 && sketch.getNonFiniteCount() == 3,
+                    "counts " + sketch.getCount() + " / " + sketch.getNonFiniteCount());
+            TestSupport.check(sketch.getMin() == 1 && sketch.getMax() == 9_999, "min/max ignore non-finite values");
+            TestSupport.check(Double.isFinite(sketch.quantile(1)), "quantiles stay finite");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void testSubnormalsShareTheZeroBucket() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        sketch.accept(-Double.MIN_VALUE);
+        sketch.accept(0);
+        sketch.accept(Double.MIN_NORMAL / 2);
+        sketch.accept(1);
+        TestSupport.check(sketch.quantile(1.0 / 3) == 0, "subnormal reported as 0: " + sketch.quantile(1.0 / 3));
+        TestSupport.check(sketch.quantile(0) == 0 && sketch.getMin() == -Double.MIN_VALUE,
+                "negative subnormal quantile is 0, min stays exact");
+    }
+
+    private static void testRankAndEdgeCases() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY);
+        TestSupport.check(Double.isNaN(sketch.quantile(0.5)), "empty sketch has no quantiles");
+        for (double value : new double[]{10, 20, 30, 40}) {
+            sketch.accept(value);
+        }
+        // floor(0.5 * 3) = rank 1: the lower middle value
+        TestSupport.check(Math.abs(sketch.quantile(0.5) - 20) <= 20 * ACCURACY, "median " + sketch.quantile(0.5));
+        TestSupport.expect(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+        TestSupport.expect(IllegalArgumentException.class, () -> sketch.quantile(Double.NaN));
+        TestSupport.expect(IllegalArgumentException.class, () -> new QuantileSketch(0));
+    }
+
+    private static void testHistogram() {
+        double[] values = mixedValues(5_000);
+        QuantileSketch sketch = QuantileSketch.of(values, 0, values.length, ACCURACY);
+        long[] histogram = sketch.histogram(10);
+        TestSupport.check(Arrays.stream(histogram).sum() == values.length, "histogram counts every value");
+        TestSupport.check(histogram[0] > 0 && histogram[9] > 0, "both extremes land in the end bins");
+        TestSupport.expect(IllegalArgumentException.class, () -> sketch.histogram(0));
+    }
+
+    private static double[] mixedValues(int count) {
+        Random random = new Random(7);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = i % 50 == 0 ? 0 : Math.exp(random.nextGaussian() * 3) * (random.nextBoolean() ? 1 : -1);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,458 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Compressed, block-structured archive of ParametersAndResults.
+// Values are encoded per block with Gorilla XOR compression: each double is XORed with the previous
+// one and only the meaningful bits between the leading and trailing zeros are stored, so repeated and
+// slowly changing values shrink to a few bits. Types are stored as runs of dictionary codes.
+// Blocks are independent, so they are encoded and decoded in parallel and any result can be read by
+// decoding just its block. A block whose runs or XOR stream would be bigger than the plain data stores
+// that part raw instead, so incompressible input costs little more than its raw size.
+// Layout, big-endian:
+//   int magic 'PARZ', short version, int blockSize, int parameterCount, double[parameterCount],
+//   int typeCount, typeCount x (byte present, short length, UTF-8 bytes), long resultCount,
+//   blocks: int count,
+//           int runCount, runCount x (int code, int length)  or  -1, count codes of 1, 2 or 4 bytes,
+//           int wordCount, long[wordCount]                    or  -1, double[count]
+//   index: long[blockCount] block offsets, then footer: long indexOffset, int magic
+// Version 1 files never use the raw (-1) forms.
+public class ResultArchive implements Closeable {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+    private static final int MAGIC = 0x5041525A; // "PARZ"
+    private static final short VERSION = 2;
+    private static final int RAW = -1;
+    private static final int FIXED_HEADER_SIZE = Integer.BYTES + Short.BYTES + 2 * Integer.BYTES;
+    private static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES;
+    private static final int BLOCKS_PER_WRITE = 64; // Blocks encoded in parallel before being written
+
+    private final FileChannel channel;
+    private final int blockSize;
+    private final double[] parameters;
+    private final String[] types;
+    private final long size;
+    private final long[] blockOffsets;
+    private final long[] blockEnds;
+    private final int codeWidth;
+    private int cachedBlock = -1;
+    private Block cached;
+
+    private ResultArchive(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long fileSize = channel.size();
+        if (fileSize < FIXED_HEADER_SIZE + FOOTER_SIZE) {
+            throw new StreamCorruptedException("Not a result archive or incomplete file");
+        }
+        ByteBuffer footer = read(fileSize - FOOTER_SIZE, FOOTER_SIZE);
+        long indexOffset = footer.getLong();
+        if (footer.getInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a result archive or incomplete file");
+        }
+        if (indexOffset < FIXED_HEADER_SIZE || indexOffset > fileSize - FOOTER_SIZE) {
+            throw new StreamCorruptedException("Invalid result archive index offset " + indexOffset);
+        }
+        // Only the header is read, sequentially; the blocks after it stay on disk until needed
+        DataInputStream header = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+        short version;
+        if (header.readInt() != MAGIC || (version = header.readShort()) < 1 || version > VERSION) {
+            throw new StreamCorruptedException("Unsupported result archive header");
+        }
+        blockSize = header.readInt();
+        int parameterCount = header.readInt();
+        if (blockSize < 1 || parameterCount < 0 || parameterCount > indexOffset / Double.BYTES) {
+            throw new StreamCorruptedException("Invalid result archive header");
+        }
+        parameters = new double[parameterCount];
+        for (int i = 0; i < parameterCount; i++) {
+            parameters[i] = header.readDouble();
+        }
+        int typeCount = header.readInt();
+        if (typeCount < 0 || typeCount > indexOffset / (1 + Short.BYTES)) {
+            throw new StreamCorruptedException("Invalid result archive type count " + typeCount);
+        }
+        types = new String[typeCount];
+        for (int i = 0; i < types.length; i++) {
+            boolean present = header.readByte() != 0;
+            byte[] bytes = new byte[header.readUnsignedShort()];
+            header.readFully(bytes);
+            types[i] = present ? new String(bytes, StandardCharsets.UTF_8) : null;
+        }
+        codeWidth = codeWidth(typeCount);
+        size = header.readLong();
+        long blocks = size < 0 ? -1 : (size + blockSize - 1) / blockSize;
+        if (blocks < 0 || blocks * Long.BYTES != fileSize - FOOTER_SIZE - indexOffset) {
+            throw new StreamCorruptedException("Result archive index does not match its size " + size);
+        }
+        int blockCount = (int) blocks;
+        blockOffsets = new long[blockCount];
+        read(indexOffset, blockCount * Long.BYTES).asLongBuffer().get(blockOffsets);
+        blockEnds = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blockEnds[i] = i + 1 < blockCount ? blockOffsets[i + 1] : indexOffset;
+        }
+    }
+
+    public static ResultArchive open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new ResultArchive(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static void write(ParametersAndResults data, Path file) throws IOException {
+        write(data, file, DEFAULT_BLOCK_SIZE);
+    }
+
+    public static void write(ParametersAndResults data, Path file, int blockSize) throws IOException {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        ResultColumns results = data.getResultColumns();
+        double[] parameters = data.getParameters();
+        int count = results.size();
+        int blockCount = (int) (((long) count + blockSize - 1) / blockSize); // long: blockSize may be huge
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            byte[][] typeNames = new byte[results.getTypeCount()][];
+            int headerSize = Integer.BYTES + Short.BYTES + 2 * Integer.BYTES + parameters.length * Double.BYTES
+                    + Integer.BYTES + Long.BYTES;
+            for (int code = 0; code < typeNames.length; code++) {
+                String type = results.getTypeName(code);
+                typeNames[code] = type == null ? new byte[0] : type.getBytes(StandardCharsets.UTF_8);
+                if (typeNames[code].length > 0xFFFF) {
+                    throw new IllegalArgumentException("Type name too long: " + type.substring(0, 32) + "...");
+                }
+                headerSize += 1 + Short.BYTES + typeNames[code].length;
+            }
+            ByteBuffer header = ByteBuffer.allocate(headerSize);
+            header.putInt(MAGIC).putShort(VERSION).putInt(blockSize).putInt(parameters.length);
+            for (double parameter : parameters) {
+                header.putDouble(parameter);
+            }
+            header.putInt(typeNames.length);
+            for (int code = 0; code < typeNames.length; code++) {
+                header.put((byte) (results.getTypeName(code) != null ? 1 : 0));
+                header.putShort((short) typeNames[code].length).put(typeNames[code]);
+            }
+            header.putLong(count);
+            writeFully(channel, header.flip());
+
+            long[] offsets = new long[blockCount];
+            for (int first = 0; first < blockCount; first += BLOCKS_PER_WRITE) {
+                int last = Math.min(blockCount, first + BLOCKS_PER_WRITE);
+                ByteBuffer[] encoded = IntStream.range(first, last).parallel()
+                        .mapToObj(block -> encodeBlock(results, block * blockSize,
+                                (int) Math.min(count, (block + 1L) * blockSize), codeWidth(typeNames.length)))
+                        .toArray(ByteBuffer[]::new);
+                for (int i = 0; i < encoded.length; i++) {
+                    offsets[first + i] = channel.position();
+                    writeFully(channel, encoded[i]);
+                }
+            }
+            long indexOffset = channel.position();
+            ByteBuffer index = ByteBuffer.allocate(blockCount * Long.BYTES + FOOTER_SIZE);
+            index.asLongBuffer().put(offsets);
+            index.position(blockCount * Long.BYTES);
+            index.putLong(indexOffset).putInt(MAGIC);
+            writeFully(channel, index.flip());
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public double[] getParameters() {
+        return parameters.clone();
+    }
+
+    // Random access decodes only the block holding the index; the last block is cached, so not thread-safe
+    public double getValue(long index) throws IOException {
+        return block(index).values[(int) (index % blockSize)];
+    }
+
+    public String getType(long index) throws IOException {
+        return types[block(index).codes[(int) (index % blockSize)]];
+    }
+
+    // Decodes every block in parallel
+    public ParametersAndResults readAll() throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Archive too large for an in-memory ParametersAndResults: " + size);
+        }
+        Block[] blocks = new Block[blockOffsets.length];
+        ByteBuffer[] raw = new ByteBuffer[blocks.length];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = read(blockOffsets[i], (int) (blockEnds[i] - blockOffsets[i]));
+        }
+        IntStream.range(0, blocks.length).parallel().forEach(i -> blocks[i] = decodeBlock(raw[i], codeWidth));
+        ParametersAndResults data = new ParametersAndResults(parameters.clone(), new double[0]);
+        for (Block block : blocks) {
+            for (int i = 0; i < block.values.length; i++) {
+                data.addResult(types[block.codes[i]], block.values[i]);
+            }
+        }
+        return data;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private Block block(long index) throws IOException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Result " + index + " out of bounds for size " + size);
+        }
+        int blockIndex = (int) (index / blockSize);
+        if (blockIndex != cachedBlock) {
+            cached = decodeBlock(read(blockOffsets[blockIndex], (int) (blockEnds[blockIndex] - blockOffsets[blockIndex])),
+                    codeWidth);
+            cachedBlock = blockIndex;
+        }
+        return cached;
+    }
+
+    private static int codeWidth(int typeCount) {
+        if (typeCount <= 1 << Byte.SIZE) {
+            return 1;
+        }
+        return typeCount <= 1 << Short.SIZE ? 2 : 4;
+    }
+
+    private static ByteBuffer encodeBlock(ResultColumns results, int from, int to, int codeWidth) {
+        int count = to - from;
+        int[] runCodes = new int[count];
+        int[] runLengths = new int[count];
+        int runs = 0;
+        for (int i = from; i < to; i++) {
+            int code = results.getTypeCode(i);
+            if (runs > 0 && runCodes[runs - 1] == code) {
+                runLengths[runs - 1]++;
+            } else {
+                runCodes[runs] = code;
+                runLengths[runs++] = 1;
+            }
+        }
+
+        double[] values = new double[count];
+        results.copyValues(from, values, 0, count);
+        BitWriter bits = new BitWriter(count);
+        long previous = Double.doubleToRawLongBits(values[0]);
+        bits.write(previous, 64);
+        int previousLeading = -1;
+        int previousTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            long current = Double.doubleToRawLongBits(values[i]);
+            long xor = current ^ previous;
+            previous = current;
+            if (xor == 0) {
+                bits.write(0, 1);
+                continue;
+            }
+            int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // Fits in the previous window: '10' + window bits
+                bits.write(0b10, 2);
+                bits.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                // New window: '11' + 5 bits leading zeros + 6 bits (length - 1) + meaningful bits
+                int meaningful = 64 - leading - trailing;
+                bits.write(0b11, 2);
+                bits.write(leading, 5);
+                bits.write(meaningful - 1, 6);
+                bits.write(xor >>> trailing, meaningful);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+
+        long[] words = bits.toWords();
+        boolean rawCodes = (long) runs * 2 * Integer.BYTES > (long) count * codeWidth;
+        boolean rawValues = words.length >= count;
+        ByteBuffer block = ByteBuffer.allocate(3 * Integer.BYTES
+                + (rawCodes ? count * codeWidth : runs * 2 * Integer.BYTES)
+                + (rawValues ? count : words.length) * Long.BYTES);
+        block.putInt(count);
+        if (rawCodes) {
+            block.putInt(RAW);
+            for (int i = from; i < to; i++) {
+                putCode(block, results.getTypeCode(i), codeWidth);
+            }
+        } else {
+            block.putInt(runs);
+            for (int i = 0; i < runs; i++) {
+                block.putInt(runCodes[i]).putInt(runLengths[i]);
+            }
+        }
+        if (rawValues) {
+            block.putInt(RAW);
+            block.asDoubleBuffer().put(values);
+        } else {
+            block.putInt(words.length);
+            block.asLongBuffer().put(words);
+        }
+        block.position(block.capacity());
+        return block.flip();
+    }
+
+    private static Block decodeBlock(ByteBuffer buffer, int codeWidth) {
+        int count = buffer.getInt();
+        int[] codes = new int[count];
+        int runs = buffer.getInt();
+        if (runs == RAW) {
+            for (int i = 0; i < count; i++) {
+                codes[i] = getCode(buffer, codeWidth);
+            }
+        }
+        for (int i = 0, position = 0; i < runs; i++) {
+            int code = buffer.getInt();
+            int length = buffer.getInt();
+            Arrays.fill(codes, position, position + length, code);
+            position += length;
+        }
+        double[] values = new double[count];
+        int wordCount = buffer.getInt();
+        if (wordCount == RAW) {
+            buffer.asDoubleBuffer().get(values);
+            return new Block(codes, values);
+        }
+        long[] words = new long[wordCount];
+        buffer.asLongBuffer().get(words);
+
+        BitReader bits = new BitReader(words);
+        long previous = bits.read(64);
+        values[0] = Double.longBitsToDouble(previous);
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (bits.read(1) != 0) {
+                if (bits.read(1) != 0) {
+                    leading = (int) bits.read(5);
+                    int meaningful = (int) bits.read(6) + 1;
+                    trailing = 64 - leading - meaningful;
+                }
+                previous ^= bits.read(64 - leading - trailing) << trailing;
+            }
+            values[i] = Double.longBitsToDouble(previous);
+        }
+        return new Block(codes, values);
+    }
+
+    private static void putCode(ByteBuffer buffer, int code, int width) {
+        if (width == 1) {
+            buffer.put((byte) code);
+        } else if (width == 2) {
+            buffer.putShort((short) code);
+        } else {
+            buffer.putInt(code);
+        }
+    }
+
+    private static int getCode(ByteBuffer buffer, int width) {
+        if (width == 1) {
+            return buffer.get() & 0xFF;
+        }
+        return width == 2 ? buffer.getShort() & 0xFFFF : buffer.getInt();
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new StreamCorruptedException("Unexpected end of result archive");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static class Block {
+
+        final int[] codes;
+        final double[] values;
+
+        Block(int[] codes, double[] values) {
+            this.codes = codes;
+            this.values = values;
+        }
+    }
+
+    private static class BitWriter {
+
+        private long[] words;
+        private long bitCount;
+
+        BitWriter(int expectedValues) {
+            words = new long[Math.max(2, expectedValues / 2)];
+        }
+
+        // Appends the low n bits of value, most significant first (1 <= n <= 64)
+        void write(long value, int n) {
+            int word = (int) (bitCount >>> 6);
+            int used = (int) (bitCount & 63);
+            if (word + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            long masked = n == 64 ? value : value & ((1L << n) - 1);
+            int free = 64 - used;
+            if (n <= free) {
+                words[word] |= masked << (free - n);
+            } else {
+                words[word] |= masked >>> (n - free);
+                words[word + 1] |= masked << (64 - (n - free));
+            }
+            bitCount += n;
+        }
+
+        long[] toWords() {
+            return Arrays.copyOf(words, (int) ((bitCount + 63) >>> 6));
+        }
+    }
+
+    private static class BitReader {
+
+        private final long[] words;
+        private long position;
+
+        BitReader(long[] words) {
+            this.words = words;
+        }
+
+        long read(int n) {
+            int word = (int) (position >>> 6);
+            int used = (int) (position & 63);
+            int available = 64 - used;
+            long result;
+            if (n <= available) {
+                result = (words[word] << used) >>> (64 - n);
+            } else {
+                long high = (words[word] << used) >>> used;
+                result = (high << (n - available)) | (words[word + 1] >>> (64 - (n - available)));
+            }
+            position += n;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+public class ResultArchiveTest {
+
+    private static final int BLOCK_SIZE = 100;
+    private static final int COUNT = 1_050; // Ten full blocks and a short last one
+
+    public static void test() throws IOException {
+        Path directory = Files.createTempDirectory("archive-test");
+        try {
+            testCompressibleData(directory.resolve("smooth.parz"));
+            testIncompressibleData(directory.resolve("random.parz"));
+            testManyTypes(directory.resolve("types.parz"));
+            testHugeBlockSize(directory.resolve("huge-blocks.parz"));
+            testEmptyArchive(directory.resolve("empty.parz"));
+            testTruncatedFile(directory.resolve("truncated.parz"));
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    // Slowly changing values and long type runs must come out smaller than the plain doubles
+    private static void testCompressibleData(Path file) throws IOException {
+        ParametersAndResults data = new ParametersAndResults(new double[]{1, 2, 3}, new double[0]);
+        for (int i = 0; i < COUNT; i++) {
+            data.addResult(i < COUNT / 2 ? "first" : null, 100 + (i / 10));
+        }
+        ResultArchive.write(data, file, BLOCK_SIZE);
+        TestSupport.check(Files.size(file) < (long) COUNT * Double.BYTES / 4,
+                "compressed to " + Files.size(file) + " bytes");
+        checkArchive(file, data);
+    }
+
+    // Random doubles and alternating types take the raw fallback and must still round-trip bit for bit
+    private static void testIncompressibleData(Path file) throws IOException {
+        Random random = new Random(42);
+        ParametersAndResults data = new ParametersAndResults(new double[0], new double[0]);
+        for (int i = 0; i < COUNT; i++) {
+            double value = i == 7 ? Double.NaN : i == 8 ? -0.0 : Double.longBitsToDouble(random.nextLong());
+            data.addResult(i % 2 == 0 ? "even" : "odd", value);
+        }
+        ResultArchive.write(data, file, BLOCK_SIZE);
+        long raw = (long) COUNT * (Double.BYTES + 1);
+        TestSupport.check(Files.size(file) < raw + raw / 10,
+                "raw blocks stay close to the plain size: " + Files.size(file));
+        checkArchive(file, data);
+    }
+
+    // More than 256 types needs two-byte codes in raw blocks
+    private static void testManyTypes(Path file) throws IOException {
+        ParametersAndResults data = new ParametersAndResults(new double[0], new double[0]);
+        for (int i = 0; i < COUNT; i++) {
+            data.addResult("type-" + (i % 300), i);
+        }
+        ResultArchive.write(data, file, BLOCK_SIZE);
+        checkArchive(file, data);
+    }
+
+    // Block bounds used to be computed in int and overflowed for block sizes near Integer.MAX_VALUE
+    private static void testHugeBlockSize(Path file) throws IOException {
+        ParametersAndResults data = new ParametersAndResults(new double[0], new double[0]);
+        for (int i = 0; i < COUNT; i++) {
+            data.addResult("value", i * 0.5);
+        }
+        ResultArchive.write(data, file, Integer.MAX_VALUE);
+        try (ResultArchive archive = ResultArchive.open(file)) {
+            TestSupport.check(archive.size() == COUNT, "single huge block holds everything: " + archive.size());
+            TestSupport.check(archive.getValue(COUNT - 1) == (COUNT - 1) * 0.5, "last value in a huge block");
+        }
+    }
+
+    private static void testEmptyArchive(Path file) throws IOException {
+        ResultArchive.write(new ParametersAndResults(new double[]{5}, new double[0]), file);
+        try (ResultArchive archive = ResultArchive.open(file)) {
+            TestSupport.check(archive.size() == 0, "empty archive size " + archive.size());
+            TestSupport.check(Arrays.equals(new double[]{5}, archive.getParameters()),
+                    "parameters of an empty archive");
+            TestSupport.check(archive.readAll().getResults().isEmpty(), "empty archive reads no results");
+            TestSupport.expect(IndexOutOfBoundsException.class, () -> archive.getValue(0));
+        }
+    }
+
+    private static void testTruncatedFile(Path file) throws IOException {
+        ParametersAndResults data = new ParametersAndResults(new double[0], new double[0]);
+        for (int i = 0; i < COUNT; i++) {
+            data.addResult("value", i);
+        }
+        ResultArchive.write(data, file, BLOCK_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        TestSupport.expect(StreamCorruptedException.class, () -> ResultArchive.open(file).close());
+        Files.write(file, new byte[8]);
+        TestSupport.expect(StreamCorruptedException.class, () -> ResultArchive.open(file).close());
+    }
+
+    private static void checkArchive(Path file, ParametersAndResults expected) throws IOException {
+        List<CalculationResult> results = expected.getResults();
+        try (ResultArchive archive = ResultArchive.open(file)) {
+            TestSupport.check(archive.size() == results.size(), "archive size " + archive.size());
+            TestSupport.check(Arrays.equals(expected.getParameters(), archive.getParameters()), "parameters");
+            // Jump between blocks in both directions, including both ends of the short last block
+            for (int index : new int[]{COUNT - 1, 0, 555, 99, 100, 1_000, 37, COUNT - 50}) {
+                checkResult(results.get(index), archive.getType(index), archive.getValue(index), index);
+            }
+            TestSupport.expect(IndexOutOfBoundsException.class, () -> archive.getValue(-1));
+            TestSupport.expect(IndexOutOfBoundsException.class, () -> archive.getType(COUNT));
+
+            List<CalculationResult> all = archive.readAll().getResults();
+            TestSupport.check(all.size() == results.size(), "readAll size " + all.size());
+            for (int i = 0; i < all.size(); i++) {
+                checkResult(results.get(i), all.get(i).getType(), all.get(i).getValue(), i);
+            }
+        }
+    }
+
+    private static void checkResult(CalculationResult expected, String type, double value, int index) {
+        TestSupport.check(Objects.equals(expected.getType(), type), "type " + index + ": " + type);
+        TestSupport.check(Double.doubleToRawLongBits(expected.getValue()) == Double.doubleToRawLongBits(value),
+                "value " + index + ": " + value);
+    }
+}
@@ -0,0 +1,228 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Versioned binary format for ParametersAndResults, all numbers big-endian:
+//   int magic 'PARS', short version,
+//   int parameterCount, double[parameterCount],
+//   int typeCount, typeCount x (boolean present, UTF name),
+//   int resultCount, byte codeWidth (1, 2 or 4), codes[resultCount], double[resultCount]
+// Streams that start with the Java serialization header are read the old way.
+// Counts come from the stream, so arrays grow as data actually arrives instead of being sized from
+// them up front; a corrupt count runs into the end of the input rather than out of memory.
+public final class ResultCodec {
+
+    public static final int MAGIC = 0x50415253; // "PARS"
+    public static final short VERSION = 1;
+
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_LENGTH = BUFFER_SIZE / Double.BYTES;
+
+    // Legacy streams may only contain what ParametersAndResults ever serialized; anything else is rejected
+    // before it is instantiated. Each result costs two references (the result and its type string).
+    private static final int MAX_LEGACY_RESULTS = 1 << 24;
+    private static final ObjectInputFilter LEGACY_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=5;maxarray=" + MAX_LEGACY_RESULTS + ";maxrefs=" + (2 * MAX_LEGACY_RESULTS + 16)
+                    + ";ParametersAndResults;CalculationResult;java.util.ArrayList;java.lang.*;!*");
+
+    private ResultCodec() {
+    }
+
+    public static void save(ParametersAndResults data, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(data, out);
+        }
+    }
+
+    public static ParametersAndResults load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    public static void write(ParametersAndResults data, OutputStream out) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+
+        double[] parameters = data.getParameters();
+        output.writeInt(parameters.length);
+        writeDoubles(output, parameters, parameters.length);
+
+        ResultColumns results = data.getResultColumns();
+        int count = results.size();
+        output.writeInt(results.getTypeCount());
+        for (int code = 0; code < results.getTypeCount(); code++) {
+            String type = results.getTypeName(code);
+            output.writeBoolean(type != null);
+            if (type != null) {
+                output.writeUTF(type);
+            }
+        }
+        output.writeInt(count);
+        int codeWidth = codeWidth(results.getTypeCount());
+        output.writeByte(codeWidth);
+        for (int i = 0; i < count; i++) {
+            writeCode(output, results.getTypeCode(i), codeWidth);
+        }
+        writeValues(output, results);
+        output.flush();
+    }
+
+    public static ParametersAndResults read(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(Integer.BYTES);
+        DataInputStream input = new DataInputStream(buffered);
+        int magic = input.readInt();
+        if (magic >>> 16 == JAVA_SERIALIZATION_MAGIC) {
+            buffered.reset();
+            return readSerialized(buffered);
+        }
+        if (magic != MAGIC) {
+            throw new StreamCorruptedException("Not a ParametersAndResults stream, magic " + Integer.toHexString(magic));
+        }
+        short version = input.readShort();
+        if (version != VERSION) {
+            throw new InvalidClassException("ParametersAndResults", "Unsupported format version " + version);
+        }
+
+        double[] parameters = readDoubles(input, checkCount(input.readInt(), "parameter"));
+        int typeCount = checkCount(input.readInt(), "type");
+        String[] types = new String[Math.min(typeCount, INITIAL_LENGTH)];
+        for (int i = 0; i < typeCount; i++) {
+            if (i == types.length) {
+                types = Arrays.copyOf(types, grow(i, typeCount));
+            }
+            types[i] = input.readBoolean() ? input.readUTF() : null;
+        }
+        int count = checkCount(input.readInt(), "result");
+        int codeWidth = input.readByte();
+        if (codeWidth != 1 && codeWidth != 2 && codeWidth != 4) {
+            throw new StreamCorruptedException("Invalid type code width " + codeWidth);
+        }
+        int[] codes = new int[Math.min(count, INITIAL_LENGTH)];
+        for (int i = 0; i < count; i++) {
+            if (i == codes.length) {
+                codes = Arrays.copyOf(codes, grow(i, count));
+            }
+            int code = readCode(input, codeWidth);
+            if (code < 0 || code >= typeCount) {
+                throw new StreamCorruptedException("Invalid type code " + code + " for result " + i);
+            }
+            codes[i] = code;
+        }
+        double[] values = readDoubles(input, count);
+
+        ParametersAndResults data = new ParametersAndResults(parameters, new double[0]);
+        for (int i = 0; i < count; i++) {
+            data.addResult(types[codes[i]], values[i]);
+        }
+        return data;
+    }
+
+    private static ParametersAndResults readSerialized(InputStream in) throws IOException {
+        try {
+            ObjectInputStream input = new ObjectInputStream(in);
+            input.setObjectInputFilter(LEGACY_FILTER);
+            return (ParametersAndResults) input.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new InvalidClassException("ParametersAndResults", "Cannot read legacy stream: " + e.getMessage());
+        }
+    }
+
+    private static int checkCount(int count, String what) throws StreamCorruptedException {
+        if (count < 0) {
+            throw new StreamCorruptedException("Negative " + what + " count " + count);
+        }
+        return count;
+    }
+
+    // Doubles the length, capped at the declared count
+    private static int grow(int length, int count) {
+        return (int) Math.min(count, Math.max(INITIAL_LENGTH, 2L * length));
+    }
+
+    private static int codeWidth(int typeCount) {
+        if (typeCount <= 1 << Byte.SIZE) {
+            return 1;
+        }
+        return typeCount <= 1 << Short.SIZE ? 2 : 4;
+    }
+
+    private static void writeCode(DataOutputStream output, int code, int width) throws IOException {
+        if (width == 1) {
+            output.writeByte(code);
+        } else if (width == 2) {
+            output.writeShort(code);
+        } else {
+            output.writeInt(code);
+        }
+    }
+
+    private static int readCode(DataInputStream input, int width) throws IOException {
+        switch (width) {
+            case 1:
+                return input.readUnsignedByte();
+            case 2:
+                return input.readUnsignedShort();
+            case 4:
+                return input.readInt();
+            default:
+                throw new StreamCorruptedException("Invalid type code width " + width);
+        }
+    }
+
+    // Copies doubles through a byte block so large arrays are not written one value at a time
+    private static void writeDoubles(DataOutputStream output, double[] values, int count) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int offset = 0; offset < count; ) {
+            int length = Math.min(count - offset, BUFFER_SIZE / Double.BYTES);
+            block.clear();
+            block.asDoubleBuffer().put(values, offset, length);
+            output.write(block.array(), 0, length * Double.BYTES);
+            offset += length;
+        }
+    }
+
+    private static void writeValues(DataOutputStream output, ResultColumns results) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BUFFER_SIZE);
+        double[] chunk = new double[BUFFER_SIZE / Double.BYTES];
+        for (int offset = 0; offset < results.size(); ) {
+            int length = Math.min(results.size() - offset, chunk.length);
+            results.copyValues(offset, chunk, 0, length);
+            block.clear();
+            block.asDoubleBuffer().put(chunk, 0, length);
+            output.write(block.array(), 0, length * Double.BYTES);
+            offset += length;
+        }
+    }
+
+    private static double[] readDoubles(DataInputStream input, int count) throws IOException {
+        double[] values = new double[Math.min(count, INITIAL_LENGTH)];
+        ByteBuffer block = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int offset = 0; offset < count; ) {
+            int length = Math.min(count - offset, BUFFER_SIZE / Double.BYTES);
+            if (offset + length > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, count));
+            }
+            input.readFully(block.array(), 0, length * Double.BYTES);
+            block.clear();
+            block.asDoubleBuffer().get(values, offset, length);
+            offset += length;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+
+public class ResultCodecTest {
+
+    public static void test() throws IOException {
+        testRoundTrip();
+        testRoundTripWithWideTypeCodes();
+        testLegacySerializedStream();
+        testLegacyStreamWithForeignClassIsRejected();
+        testCorruptStreams();
+        testHostileCounts();
+    }
+
+    private static void testRoundTrip() throws IOException {
+        ParametersAndResults data = new ParametersAndResults(new double[]{1.5, -2, Double.NaN}, new double[]{7});
+        data.addResult("Addition", 3);
+        data.addResult(null, -0.0);
+        data.addResult("Addition", Double.POSITIVE_INFINITY);
+        checkSame(data, ResultCodec.read(new ByteArrayInputStream(encode(data))));
+    }
+
+    // More than 256 types forces two-byte type codes
+    private static void testRoundTripWithWideTypeCodes() throws IOException {
+        ParametersAndResults data = new ParametersAndResults(new double[0], new double[0]);
+        for (int i = 0; i < 1_000; i++) {
+            data.addResult("type-" + (i % 300), i * 0.25);
+        }
+        checkSame(data, ResultCodec.read(new ByteArrayInputStream(encode(data))));
+    }
+
+    private static void testLegacySerializedStream() throws IOException {
+        ParametersAndResults data = new ParametersAndResults(new double[]{4, 5}, new double[]{1, 2});
+        data.addResult("Multiplication", 20);
+        checkSame(data, ResultCodec.read(new ByteArrayInputStream(serialize(data))));
+    }
+
+    private static void testLegacyStreamWithForeignClassIsRejected() throws IOException {
+        HashMap<String, Integer> foreign = new HashMap<>();
+        foreign.put("a", 1);
+        TestSupport.expect(InvalidClassException.class,
+                () -> ResultCodec.read(new ByteArrayInputStream(serialize(foreign))));
+    }
+
+    private static void testCorruptStreams() throws IOException {
+        TestSupport.expect(StreamCorruptedException.class,
+                () -> ResultCodec.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4})));
+        ParametersAndResults data = new ParametersAndResults(new double[]{1}, new double[]{2, 3});
+        byte[] bytes = encode(data);
+        TestSupport.expect(EOFException.class,
+                () -> ResultCodec.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3))));
+    }
+
+    // Counts and codes come from the file; bad ones must fail as IOExceptions, not allocate or index blindly
+    private static void testHostileCounts() {
+        expectCorrupt(StreamCorruptedException.class, output -> output.writeInt(-1));
+        expectCorrupt(EOFException.class, output -> output.writeInt(Integer.MAX_VALUE));
+        expectCorrupt(StreamCorruptedException.class, output -> {
+            output.writeInt(0);
+            output.writeInt(-5);
+        });
+        expectCorrupt(EOFException.class, output -> {
+            output.writeInt(0);
+            output.writeInt(Integer.MAX_VALUE);
+        });
+        expectCorrupt(StreamCorruptedException.class, output -> {
+            output.writeInt(0);
+            output.writeInt(0);
+            output.writeInt(Integer.MIN_VALUE);
+        });
+        expectCorrupt(EOFException.class, output -> {
+            output.writeInt(0);
+            output.writeInt(0);
+            output.writeInt(Integer.MAX_VALUE);
+            output.writeByte(4);
+        });
+        expectCorrupt(StreamCorruptedException.class, output -> {
+            output.writeInt(0);
+            output.writeInt(1);
+            output.writeBoolean(false);
+            output.writeInt(1);
+            output.writeByte(3);
+        });
+        // Type code 1 with only one type, and a code without any types
+        for (int typeCount = 1; typeCount >= 0; typeCount--) {
+            int types = typeCount;
+            expectCorrupt(StreamCorruptedException.class, output -> {
+                output.writeInt(0);
+                output.writeInt(types);
+                for (int i = 0; i < types; i++) {
+                    output.writeBoolean(false);
+                }
+                output.writeInt(1);
+                output.writeByte(1);
+                output.writeByte(1);
+                output.writeDouble(0);
+            });
+        }
+    }
+
+    private interface Body {
+        void write(DataOutputStream output) throws IOException;
+    }
+
+    // Reads a stream with a valid header followed by body
+    private static void expectCorrupt(Class<? extends IOException> expected, Body body) {
+        TestSupport.expect(expected, () -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(out);
+            output.writeInt(ResultCodec.MAGIC);
+            output.writeShort(ResultCodec.VERSION);
+            body.write(output);
+            ResultCodec.read(new ByteArrayInputStream(out.toByteArray()));
+        });
+    }
+
+    private static byte[] encode(ParametersAndResults data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultCodec.write(data, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(out)) {
+            output.writeObject(object);
+        }
+        return out.toByteArray();
+    }
+
+    private static void checkSame(ParametersAndResults expected, ParametersAndResults actual) {
+        if (!Arrays.equals(expected.getParameters(), actual.getParameters())) {
+            throw new AssertionError("Parameters: expected " + Arrays.toString(expected.getParameters())
+                    + " but was " + Arrays.toString(actual.getParameters()));
+        }
+        ResultColumns want = expected.getResultColumns();
+        ResultColumns got = actual.getResultColumns();
+        if (want.size() != got.size()) {
+            throw new AssertionError("Result count: expected " + want.size() + " but was " + got.size());
+        }
+        for (int i = 0; i < want.size(); i++) {
+            if (Double.doubleToRawLongBits(want.getValue(i)) != Double.doubleToRawLongBits(got.getValue(i))
+                    || !Objects.equals(want.getType(i), got.getType(i))) {
+                throw new AssertionError("Result " + i + ": expected " + want.getType(i) + "=" + want.getValue(i)
+                        + " but was " + got.getType(i) + "=" + got.getValue(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+// Column-oriented results: values in a growable double[] and types as dictionary codes.
+// Codes take one byte each until more than 256 distinct types appear, then widen to int.
+public class ResultColumns {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int BYTE_CODE_LIMIT = 1 << Byte.SIZE;
+
+    private double[] values;
+    private byte[] byteCodes;
+    private int[] intCodes; // Replaces byteCodes once the dictionary outgrows a byte
+    private int size;
+    private final List<String> types = new ArrayList<>();
+    private final Map<String, Integer> codesByType = new HashMap<>();
+    private final List<CalculationResult> view = new ResultView();
+
+    public ResultColumns() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ResultColumns(int initialCapacity) {
+        values = new double[Math.max(1, initialCapacity)];
+        byteCodes = new byte[values.length];
+    }
+
+    public void add(String type, double value) {
+        int code = codeFor(type);
+        if (size == values.length) {
+            grow();
+        }
+        values[size] = value;
+        if (intCodes != null) {
+            intCodes[size] = code;
+        } else {
+            byteCodes[size] = (byte) code;
+        }
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getValue(int index) {
+        checkIndex(index);
+        return values[index];
+    }
+
+    public String getType(int index) {
+        return types.get(getTypeCode(index));
+    }
+
+    public int getTypeCode(int index) {
+        checkIndex(index);
+        return intCodes != null ? intCodes[index] : byteCodes[index] & 0xFF;
+    }
+
+    public int getTypeCount() {
+        return types.size();
+    }
+
+    public String getTypeName(int code) {
+        return types.get(code);
+    }
+
+    public void copyValues(int from, double[] destination, int destinationOffset, int length) {
+        if (from < 0 || length < 0 || from > size - length) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + from + " + " + length + ") out of bounds for size " + size);
+        }
+        System.arraycopy(values, from, destination, destinationOffset, length);
+    }
+
+    // Live List view; CalculationResult objects are created only when elements are read
+    public List<CalculationResult> asList() {
+        return view;
+    }
+
+    private int codeFor(String type) {
+        Integer code = codesByType.get(type);
+        if (code == null) {
+            code = types.size();
+            types.add(type);
+            codesByType.put(type, code);
+            if (code == BYTE_CODE_LIMIT && intCodes == null) {
+                widenCodes();
+            }
+        }
+        return code;
+    }
+
+    private void grow() {
+        int newCapacity = values.length + (values.length >> 1) + 1;
+        values = Arrays.copyOf(values, newCapacity);
+        if (intCodes != null) {
+            intCodes = Arrays.copyOf(intCodes, newCapacity);
+        } else {
+            byteCodes = Arrays.copyOf(byteCodes, newCapacity);
+        }
+    }
+
+    private void widenCodes() {
+        intCodes = new int[values.length];
+        for (int i = 0; i < size; i++) {
+            intCodes[i] = byteCodes[i] & 0xFF;
+        }
+        byteCodes = null;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    private class ResultView extends AbstractList<CalculationResult> implements RandomAccess {
+
+        @Override
+        public CalculationResult get(int index) {
+            return new CalculationResult(getType(index), getValue(index));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        // Appending is supported so code that added through getResults() keeps working
+        @Override
+        public void add(int index, CalculationResult result) {
+            if (index != size) {
+                throw new UnsupportedOperationException("Results can only be appended");
+            }
+            ResultColumns.this.add(result.getType(), result.getValue());
+            modCount++;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.List;
+
+public class ResultColumnsTest {
+
+    public static void test() throws IOException, ClassNotFoundException {
+        testColumnsGrowAndShareTypeCodes();
+        testCodesWidenPastOneByte();
+        testListView();
+        testCopyValues();
+        testSerializedFormIsUnchanged();
+    }
+
+    private static void testColumnsGrowAndShareTypeCodes() {
+        ResultColumns columns = new ResultColumns(0);
+        for (int i = 0; i < 100; i++) {
+            columns.add(i % 2 == 0 ? "even" : null, i);
+        }
+        TestSupport.check(columns.size() == 100 && columns.getTypeCount() == 2, "size and dictionary size");
+        TestSupport.check(columns.getValue(99) == 99 && columns.getType(99) == null, "last result");
+        TestSupport.check(columns.getTypeCode(98) == 0 && "even".equals(columns.getTypeName(0)), "shared code");
+        TestSupport.expect(IndexOutOfBoundsException.class, () -> columns.getValue(100));
+        TestSupport.expect(IndexOutOfBoundsException.class, () -> columns.getType(-1));
+    }
+
+    // The 257th type switches codes from byte to int; codes recorded before must survive
+    private static void testCodesWidenPastOneByte() {
+        ResultColumns columns = new ResultColumns();
+        for (int i = 0; i < 300; i++) {
+            columns.add("type" + i, i);
+        }
+        columns.add("type255", -1);
+        TestSupport.check(columns.getTypeCount() == 300, "types " + columns.getTypeCount());
+        for (int i = 0; i < 300; i++) {
+            TestSupport.check(columns.getTypeCode(i) == i && ("type" + i).equals(columns.getType(i)),
+                    "code of result " + i + " is " + columns.getTypeCode(i));
+        }
+        TestSupport.check(columns.getTypeCode(300) == 255 && columns.getValue(300) == -1, "reused wide code");
+    }
+
+    private static void testListView() {
+        ParametersAndResults data = new ParametersAndResults(new double[]{1}, new double[]{4, 5});
+        List<CalculationResult> results = data.getResults();
+        results.add(new CalculationResult("Sum", 9));
+        data.addResult("Product", 20);
+        TestSupport.check(results.size() == 4, "view is live: " + results.size());
+        TestSupport.check("Default".equals(results.get(0).getType()) && results.get(1).getValue() == 5,
+                "constructor results");
+        TestSupport.check("Sum".equals(results.get(2).getType()) && results.get(3).getValue() == 20,
+                "appended results");
+        TestSupport.expect(UnsupportedOperationException.class,
+                () -> results.add(0, new CalculationResult("Sum", 1)));
+        TestSupport.expect(UnsupportedOperationException.class, () -> results.remove(0));
+    }
+
+    private static void testCopyValues() {
+        ResultColumns columns = new ResultColumns();
+        for (int i = 0; i < 5; i++) {
+            columns.add("x", i * 10);
+        }
+        double[] out = new double[4];
+        columns.copyValues(2, out, 1, 3);
+        TestSupport.check(Arrays.equals(new double[]{0, 20, 30, 40}, out), "copied " + Arrays.toString(out));
+        TestSupport.expect(IndexOutOfBoundsException.class, () -> columns.copyValues(3, out, 0, 3));
+        TestSupport.expect(IndexOutOfBoundsException.class, () -> columns.copyValues(-1, out, 0, 1));
+    }
+
+    // Archives written before results moved into columns must still load, so the stream keeps a List field
+    private static void testSerializedFormIsUnchanged() throws IOException, ClassNotFoundException {
+        ObjectStreamClass descriptor = ObjectStreamClass.lookup(ParametersAndResults.class);
+        TestSupport.check(descriptor.getSerialVersionUID() == -6807207246394598943L, "serialVersionUID");
+        TestSupport.check(descriptor.getField("results").getType() == List.class, "results field is a List");
+
+        ParametersAndResults original = new ParametersAndResults(new double[]{2, 3}, new double[]{5});
+        original.addResult("Product", 6);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(original);
+        }
+        ParametersAndResults copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (ParametersAndResults) in.readObject();
+        }
+        TestSupport.check(Arrays.equals(new double[]{2, 3}, copy.getParameters()), "parameters round trip");
+        ResultColumns columns = copy.getResultColumns();
+        TestSupport.check(columns.size() == 2 && "Product".equals(columns.getType(1)) && columns.getValue(1) == 6,
+                "results round trip");
+        copy.addResult("Sum", 5);
+        TestSupport.check(copy.getResults().size() == 3, "deserialized copy accepts new results");
+    }
+}
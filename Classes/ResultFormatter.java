@@ -1,4 +1,23 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 public abstract class ResultFormatter {
 
-    public abstract String formatResult(CalculationResult result);
+    public String formatResult(CalculationResult result) {
+        StringBuilder out = new StringBuilder();
+        formatResult(result, out);
+        return out.toString();
+    }
+
+    // Appends the formatted result; reuse one builder across results to avoid per-result strings
+    public void formatResult(CalculationResult result, StringBuilder out) {
+        try {
+            formatResult(result, (Appendable) out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // A StringBuilder never throws
+        }
+    }
+
+    // Writes straight into out, e.g. a Writer, without an intermediate String
+    public abstract void formatResult(CalculationResult result, Appendable out) throws IOException;
 }
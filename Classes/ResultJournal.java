@@ -0,0 +1,268 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+// Append-only journal of results, written in checksummed batches so a crash loses at most the
+// batch that was being written. Layout, all big-endian:
+//   int magic 'PARJ', short version, int parameterCount, double[parameterCount]
+//   batches: int payloadLength, int recordCount, int crc32(payload), payload
+// A payload is a sequence of records: TYPE (byte 0, int code, boolean present, UTF name)
+// declares a type before its first use, RESULT (byte 1, int code, double value) is one result.
+public class ResultJournal implements Closeable {
+
+    public enum FsyncPolicy {
+        NEVER,       // Leave flushing to the operating system
+        ON_CLOSE,    // Force to disk once when the journal is closed
+        EVERY_BATCH  // Force to disk after every batch; slowest, survives power loss
+    }
+
+    public interface ResultConsumer {
+        void accept(String type, double value);
+    }
+
+    private static final int MAGIC = 0x5041524A; // "PARJ"
+    private static final short VERSION = 1;
+    private static final byte TYPE_RECORD = 0;
+    private static final byte RESULT_RECORD = 1;
+    private static final int BATCH_HEADER_SIZE = 3 * Integer.BYTES;
+    private static final int NULL_TYPE = -1;
+
+    private final FileChannel channel;
+    private final int batchSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final Map<String, Integer> codesByType = new HashMap<>();
+    private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    private final DataOutputStream records = new DataOutputStream(payload);
+    private final ByteBuffer batchHeader = ByteBuffer.allocate(BATCH_HEADER_SIZE);
+    private final CRC32 crc = new CRC32();
+    private int pendingResults;
+    private int pendingRecords;
+
+    private ResultJournal(FileChannel channel, int batchSize, FsyncPolicy fsyncPolicy) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.channel = channel;
+        this.batchSize = batchSize;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    public static ResultJournal create(Path file, double[] parameters, int batchSize, FsyncPolicy fsyncPolicy)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        try {
+            ResultJournal journal = new ResultJournal(channel, batchSize, fsyncPolicy);
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(header);
+            output.writeInt(MAGIC);
+            output.writeShort(VERSION);
+            output.writeInt(parameters.length);
+            for (double parameter : parameters) {
+                output.writeDouble(parameter);
+            }
+            journal.writeFully(ByteBuffer.wrap(header.toByteArray()));
+            channel.force(true);
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Reopens an existing journal after a crash: drops any torn batch at the end and continues after it
+    public static ResultJournal openForAppend(Path file, int batchSize, FsyncPolicy fsyncPolicy) throws IOException {
+        Map<String, Integer> codes = new HashMap<>();
+        long validLength = replay(file, null, codes);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+        try {
+            channel.truncate(validLength);
+            channel.position(validLength);
+            ResultJournal journal = new ResultJournal(channel, batchSize, fsyncPolicy);
+            journal.codesByType.putAll(codes);
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public void append(CalculationResult result) throws IOException {
+        append(result.getType(), result.getValue());
+    }
+
+    public void append(String type, double value) throws IOException {
+        Integer code = codesByType.get(type);
+        if (code == null) {
+            code = type == null ? NULL_TYPE : codesByType.size();
+            codesByType.put(type, code);
+            records.writeByte(TYPE_RECORD);
+            records.writeInt(code);
+            records.writeBoolean(type != null);
+            if (type != null) {
+                records.writeUTF(type);
+            }
+            pendingRecords++;
+        }
+        records.writeByte(RESULT_RECORD);
+        records.writeInt(code);
+        records.writeDouble(value);
+        pendingRecords++;
+        if (++pendingResults == batchSize) {
+            flush();
+        }
+    }
+
+    // Writes the buffered results as one batch
+    public void flush() throws IOException {
+        if (pendingRecords == 0) {
+            return;
+        }
+        byte[] bytes = payload.toByteArray();
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        batchHeader.clear();
+        batchHeader.putInt(bytes.length).putInt(pendingRecords).putInt((int) crc.getValue()).flip();
+        writeFully(batchHeader);
+        writeFully(ByteBuffer.wrap(bytes));
+        if (fsyncPolicy == FsyncPolicy.EVERY_BATCH) {
+            channel.force(false);
+        }
+        payload.reset();
+        pendingRecords = 0;
+        pendingResults = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                channel.force(true);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    public static double[] readParameters(Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return readHeader(input, file, Files.size(file));
+        }
+    }
+
+    // Streams every result of every complete batch to the consumer without keeping them; returns the count
+    public static long replay(Path file, ResultConsumer consumer) throws IOException {
+        Objects.requireNonNull(consumer, "consumer");
+        long[] count = new long[1];
+        replay(file, (type, value) -> {
+            count[0]++;
+            consumer.accept(type, value);
+        }, new HashMap<>());
+        return count[0];
+    }
+
+    // Rebuilds the in-memory object from everything that was durably written before a crash
+    public static ParametersAndResults recover(Path file) throws IOException {
+        ParametersAndResults data = new ParametersAndResults(readParameters(file), new double[0]);
+        replay(file, data::addResult);
+        return data;
+    }
+
+    // Returns the file length up to the end of the last complete, checksum-valid batch
+    private static long replay(Path file, ResultConsumer consumer, Map<String, Integer> codes) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            long fileSize = Files.size(file);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(in));
+            double[] parameters = readHeader(input, file, fileSize);
+            long validLength = Integer.BYTES + Short.BYTES + Integer.BYTES + (long) parameters.length * Double.BYTES;
+            Map<Integer, String> types = new HashMap<>();
+            byte[] buffer = new byte[0];
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                int recordCount;
+                int checksum;
+                try {
+                    length = input.readInt();
+                    recordCount = input.readInt();
+                    checksum = input.readInt();
+                    // A length the file cannot hold is a torn or corrupt header, not a reason to allocate
+                    if (length < 0 || recordCount < 0 || length > fileSize - validLength - BATCH_HEADER_SIZE) {
+                        return validLength;
+                    }
+                    if (buffer.length < length) {
+                        buffer = new byte[length];
+                    }
+                    input.readFully(buffer, 0, length);
+                } catch (EOFException e) {
+                    return validLength; // Torn batch at the end of the file
+                }
+                crc.reset();
+                crc.update(buffer, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return validLength;
+                }
+                DataInputStream records = new DataInputStream(new ByteArrayInputStream(buffer, 0, length));
+                for (int i = 0; i < recordCount; i++) {
+                    byte kind = records.readByte();
+                    int code = records.readInt();
+                    if (kind == TYPE_RECORD) {
+                        String type = records.readBoolean() ? records.readUTF() : null;
+                        types.put(code, type);
+                        codes.put(type, code);
+                    } else if (kind == RESULT_RECORD) {
+                        double value = records.readDouble();
+                        if (consumer != null) {
+                            consumer.accept(types.get(code), value);
+                        }
+                    } else {
+                        throw new StreamCorruptedException("Unknown journal record " + kind + " in " + file);
+                    }
+                }
+                validLength += BATCH_HEADER_SIZE + length;
+            }
+        }
+    }
+
+    private static double[] readHeader(DataInputStream input, Path file, long fileSize) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a result journal: " + file);
+        }
+        short version = input.readShort();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported journal version " + version + ": " + file);
+        }
+        int count = input.readInt();
+        if (count < 0 || count > (fileSize - Integer.BYTES * 2 - Short.BYTES) / Double.BYTES) {
+            throw new StreamCorruptedException("Invalid parameter count " + count + ": " + file);
+        }
+        double[] parameters = new double[count];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = input.readDouble();
+        }
+        return parameters;
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ResultJournalTest {
+
+    private static final int BATCH_SIZE = 4;
+    private static final int RESULTS = 10; // Two full batches and a partial one flushed on close
+
+    public static void test() throws IOException {
+        Path directory = Files.createTempDirectory("journal-test");
+        try {
+            testReplayAndRecover(directory.resolve("complete.parj"));
+            testTornTail(directory.resolve("torn.parj"));
+            testCorruptChecksum(directory.resolve("checksum.parj"));
+            testImpossibleBatchLength(directory.resolve("length.parj"));
+            testAppendAfterTornTail(directory.resolve("append.parj"));
+            testRejectsForeignFile(directory.resolve("foreign.parj"));
+            TestSupport.expect(NullPointerException.class,
+                    () -> ResultJournal.replay(directory.resolve("complete.parj"), null));
+        } finally {
+            TestSupport.deleteRecursively(directory);
+        }
+    }
+
+    private static void testReplayAndRecover(Path file) throws IOException {
+        writeJournal(file);
+        List<String> replayed = new ArrayList<>();
+        long count = ResultJournal.replay(file, (type, value) -> replayed.add(type + "=" + value));
+        TestSupport.check(count == RESULTS && replayed.size() == RESULTS, "replayed " + count + " results");
+        TestSupport.check("null=0.0".equals(replayed.get(0)) && "odd=1.0".equals(replayed.get(1)),
+                "replay order " + replayed);
+
+        ParametersAndResults recovered = ResultJournal.recover(file);
+        TestSupport.check(Arrays.equals(new double[]{2, 0.5}, recovered.getParameters()),
+                "parameters survive recovery");
+        TestSupport.check(recovered.getResults().size() == RESULTS,
+                "recovered " + recovered.getResults().size() + " results");
+        CalculationResult last = recovered.getResults().get(9);
+        TestSupport.check(last.getValue() == 9 && "odd".equals(last.getType()), "last recovered result");
+    }
+
+    // A crash in the middle of the last batch loses only that batch
+    private static void testTornTail(Path file) throws IOException {
+        writeJournal(file);
+        truncate(file, Files.size(file) - 5);
+        TestSupport.check(ResultJournal.replay(file, (type, value) -> { }) == 2 * BATCH_SIZE, "torn batch is dropped");
+    }
+
+    private static void testCorruptChecksum(Path file) throws IOException {
+        writeJournal(file);
+        long size = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, size - 1);
+            last.put(0, (byte) ~last.get(0));
+            channel.write(last.rewind(), size - 1);
+        }
+        TestSupport.check(ResultJournal.replay(file, (type, value) -> { }) == 2 * BATCH_SIZE,
+                "batch with a bad checksum is dropped");
+    }
+
+    // A garbage batch header must end the replay instead of allocating whatever length it claims
+    private static void testImpossibleBatchLength(Path file) throws IOException {
+        writeJournal(file);
+        ByteBuffer header = ByteBuffer.allocate(12).putInt(Integer.MAX_VALUE).putInt(1).putInt(0);
+        Files.write(file, header.array(), StandardOpenOption.APPEND);
+        TestSupport.check(ResultJournal.replay(file, (type, value) -> { }) == RESULTS, "bogus batch length is ignored");
+    }
+
+    private static void testAppendAfterTornTail(Path file) throws IOException {
+        writeJournal(file);
+        truncate(file, Files.size(file) - 1);
+        try (ResultJournal journal = ResultJournal.openForAppend(file, BATCH_SIZE, ResultJournal.FsyncPolicy.NEVER)) {
+            journal.append("odd", 11);
+            journal.append("new", 12);
+        }
+        ParametersAndResults recovered = ResultJournal.recover(file);
+        List<CalculationResult> results = recovered.getResults();
+        TestSupport.check(results.size() == 2 * BATCH_SIZE + 2, "appended after the valid prefix: " + results.size());
+        TestSupport.check("odd".equals(results.get(8).getType()) && results.get(8).getValue() == 11,
+                "known type is reused");
+        TestSupport.check("new".equals(results.get(9).getType()) && results.get(9).getValue() == 12,
+                "new type is registered");
+    }
+
+    private static void testRejectsForeignFile(Path file) throws IOException {
+        Files.write(file, new byte[64]);
+        TestSupport.expect(StreamCorruptedException.class, () -> ResultJournal.replay(file, (type, value) -> { }));
+        TestSupport.expect(StreamCorruptedException.class, () -> ResultJournal.openForAppend(file, BATCH_SIZE,
+                ResultJournal.FsyncPolicy.NEVER).close());
+    }
+
+    private static void writeJournal(Path file) throws IOException {
+        try (ResultJournal journal = ResultJournal.create(file, new double[]{2, 0.5}, BATCH_SIZE,
+                ResultJournal.FsyncPolicy.NEVER)) {
+            for (int i = 0; i < RESULTS; i++) {
+                journal.append(i == 0 ? null : i % 2 == 0 ? "even" : "odd", i);
+            }
+        }
+    }
+
+    private static void truncate(Path file, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+// Receives calculator results off the compute path; implementations must tolerate calls from any thread
+public interface ResultSink {
+
+    void publish(double result);
+
+    void publishUndo(double result);
+}
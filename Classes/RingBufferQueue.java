@@ -0,0 +1,292 @@
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded lock-free queue over a pre-allocated power-of-two ring (Vyukov/Disruptor-style sequences).
+// Each slot carries a sequence number that tells producers and consumers whose turn it is,
+// so offer/poll never allocate. Consumers may always be many; producers are many unless the
+// queue is created single-producer, in which case claiming a slot needs no CAS.
+public class RingBufferQueue<T> extends AbstractQueue<T> implements BlockingQueue<T> {
+
+    public enum ProducerType {
+        SINGLE,
+        MULTI
+    }
+
+    public enum WaitStrategy {
+        BUSY_SPIN, // Lowest latency, burns a core per waiting thread
+        YIELD,     // Spins briefly, then yields the CPU
+        BLOCKING   // Parks on a condition; producers and consumers only lock when someone is waiting
+    }
+
+    private static final int SPIN_TRIES = 100;
+
+    private final Object[] buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final ProducerType producerType;
+    private final WaitStrategy waitStrategy;
+    private final AtomicLong tail = new AtomicLong(); // Next position to write
+    private final AtomicLong head = new AtomicLong(); // Next position to read
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    public RingBufferQueue(int capacity) {
+        this(capacity, ProducerType.MULTI, WaitStrategy.BLOCKING);
+    }
+
+    public RingBufferQueue(int capacity, ProducerType producerType, WaitStrategy waitStrategy) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        this.buffer = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+        this.producerType = Objects.requireNonNull(producerType, "producerType");
+        this.waitStrategy = Objects.requireNonNull(waitStrategy, "waitStrategy");
+    }
+
+    @Override
+    public boolean offer(T element) {
+        Objects.requireNonNull(element, "element");
+        long position = producerType == ProducerType.SINGLE ? claimSingle() : claimMulti();
+        if (position < 0) {
+            return false;
+        }
+        int index = (int) (position & mask);
+        buffer[index] = element;
+        sequences.set(index, position + 1); // Publishes the element to consumers
+        if (waitingConsumers.get() > 0) {
+            signal(notEmpty);
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    T element = (T) buffer[index];
+                    buffer[index] = null;
+                    sequences.set(index, position + mask + 1); // Hands the slot back to producers
+                    if (waitingProducers.get() > 0) {
+                        signal(notFull);
+                    }
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        long position = head.get();
+        int index = (int) (position & mask);
+        return sequences.get(index) == position + 1 ? (T) buffer[index] : null;
+    }
+
+    @Override
+    public void put(T element) throws InterruptedException {
+        Objects.requireNonNull(element, "element");
+        for (int tries = 0; !offer(element); tries++) {
+            await(tries, notFull, waitingProducers, Long.MAX_VALUE, true);
+        }
+    }
+
+    @Override
+    public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(element, "element");
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int tries = 0; !offer(element); tries++) {
+            if (!await(tries, notFull, waitingProducers, deadline, true)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        T element;
+        for (int tries = 0; (element = poll()) == null; tries++) {
+            await(tries, notEmpty, waitingConsumers, Long.MAX_VALUE, false);
+        }
+        return element;
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        T element;
+        for (int tries = 0; (element = poll()) == null; tries++) {
+            if (!await(tries, notEmpty, waitingConsumers, deadline, false)) {
+                return null;
+            }
+        }
+        return element;
+    }
+
+    @Override
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, buffer.length));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return buffer.length - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> collection, int maxElements) {
+        if (collection == this) {
+            throw new IllegalArgumentException("Cannot drain a queue into itself");
+        }
+        int drained = 0;
+        T element;
+        while (drained < maxElements && (element = poll()) != null) {
+            collection.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    // Weakly consistent snapshot of the elements present when the call started
+    @Override
+    @SuppressWarnings("unchecked")
+    public Iterator<T> iterator() {
+        List<T> snapshot = new ArrayList<>();
+        long end = tail.get();
+        for (long position = head.get(); position < end; position++) {
+            int index = (int) (position & mask);
+            Object element = buffer[index];
+            if (sequences.get(index) == position + 1 && element != null) {
+                snapshot.add((T) element);
+            }
+        }
+        return snapshot.iterator();
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    private long claimSingle() {
+        long position = tail.get();
+        if (sequences.get((int) (position & mask)) != position) {
+            return -1;
+        }
+        tail.lazySet(position + 1);
+        return position;
+    }
+
+    private long claimMulti() {
+        long position = tail.get();
+        while (true) {
+            long difference = sequences.get((int) (position & mask)) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return -1;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // Waits for the other side to make progress; returns false once the deadline has passed
+    private boolean await(int tries, Condition condition, AtomicInteger waiters, long deadline, boolean producer)
+            throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        long remaining = deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return false;
+        }
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                Thread.onSpinWait();
+                return true;
+            case YIELD:
+                if (tries < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+                return true;
+            default:
+                break;
+        }
+        lock.lockInterruptibly();
+        try {
+            waiters.incrementAndGet();
+            try {
+                // Re-check under the lock: the other side signals only after seeing our waiter count
+                boolean ready = producer ? size() < buffer.length : size() > 0;
+                if (!ready) {
+                    if (remaining == Long.MAX_VALUE) {
+                        condition.await();
+                    } else {
+                        condition.awaitNanos(remaining);
+                    }
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    private void signal(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
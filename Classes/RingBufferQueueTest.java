@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RingBufferQueueTest {
+
+    public static void test() throws InterruptedException {
+        testFifoAcrossWraparound();
+        testBoundsAndTimeouts();
+        testInvalidArguments();
+        testConcurrentTransfer(RingBufferQueue.ProducerType.MULTI, RingBufferQueue.WaitStrategy.BLOCKING, 3, 2);
+        testConcurrentTransfer(RingBufferQueue.ProducerType.SINGLE, RingBufferQueue.WaitStrategy.YIELD, 1, 2);
+    }
+
+    private static void testFifoAcrossWraparound() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<>(4);
+        int next = 0;
+        int expected = 0;
+        // Each round leaves the ring shifted, so positions wrap many times
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                TestSupport.check(queue.offer(next++), "offer into a non-full queue");
+            }
+            TestSupport.check(queue.peek() == expected, "peek sees the oldest element");
+            for (int i = 0; i < 3; i++) {
+                Integer element = queue.poll();
+                TestSupport.check(element != null && element == expected++, "FIFO order at " + element);
+            }
+        }
+        TestSupport.check(queue.isEmpty() && queue.poll() == null && queue.peek() == null, "drained queue is empty");
+    }
+
+    private static void testBoundsAndTimeouts() throws InterruptedException {
+        RingBufferQueue<String> queue = new RingBufferQueue<>(2);
+        TestSupport.check(queue.capacity() == 2 && queue.remainingCapacity() == 2, "capacity of an empty queue");
+        TestSupport.check(queue.offer("a") && queue.offer("b"), "fill to capacity");
+        TestSupport.check(!queue.offer("c"), "offer fails when full");
+        TestSupport.check(queue.size() == 2 && queue.remainingCapacity() == 0, "size of a full queue");
+        TestSupport.check(!queue.offer("c", 10, TimeUnit.MILLISECONDS), "timed offer gives up when full");
+        TestSupport.check(List.of("a", "b").equals(new ArrayList<>(queue)), "iterator snapshot in order");
+
+        List<String> drained = new ArrayList<>();
+        TestSupport.check(queue.drainTo(drained, 1) == 1 && queue.drainTo(drained) == 1, "drainTo moves every element");
+        TestSupport.check(List.of("a", "b").equals(drained), "drained in order: " + drained);
+        TestSupport.check(queue.poll(10, TimeUnit.MILLISECONDS) == null, "timed poll gives up when empty");
+    }
+
+    private static void testInvalidArguments() {
+        // Capacities that are not a positive power of two
+        for (int capacity : new int[]{0, -4, 3, 100}) {
+            TestSupport.expect(IllegalArgumentException.class, () -> new RingBufferQueue<String>(capacity));
+        }
+        RingBufferQueue<String> queue = new RingBufferQueue<>(2);
+        // null is the empty-slot marker of poll, and draining into itself would never terminate
+        TestSupport.expect(NullPointerException.class, () -> queue.offer(null));
+        TestSupport.expect(IllegalArgumentException.class, () -> queue.drainTo(queue));
+    }
+
+    // Every element sent by the producers must arrive exactly once; a tiny ring forces constant waiting
+    private static void testConcurrentTransfer(RingBufferQueue.ProducerType producerType,
+                                               RingBufferQueue.WaitStrategy waitStrategy,
+                                               int producers, int consumers) throws InterruptedException {
+        int perProducer = 20_000;
+        long total = (long) producers * perProducer;
+        RingBufferQueue<Long> queue = new RingBufferQueue<>(8, producerType, waitStrategy);
+        AtomicLong received = new AtomicLong();
+        AtomicLong sum = new AtomicLong();
+        AtomicInteger roles = new AtomicInteger();
+
+        TestSupport.runConcurrently(producers + consumers, () -> {
+            int role = roles.getAndIncrement();
+            if (role < producers) {
+                long first = (long) role * perProducer;
+                for (long value = first; value < first + perProducer; value++) {
+                    queue.put(value + 1);
+                }
+                return;
+            }
+            while (received.get() < total) {
+                Long value = queue.poll(10, TimeUnit.MILLISECONDS);
+                if (value != null) {
+                    sum.addAndGet(value);
+                    received.incrementAndGet();
+                }
+            }
+        });
+        String mode = producerType + "/" + waitStrategy;
+        TestSupport.check(received.get() == total, mode + " received " + received.get() + " of " + total);
+        TestSupport.check(sum.get() == total * (total + 1) / 2, mode + " delivered every element exactly once");
+        TestSupport.check(queue.isEmpty(), "queue is empty after the transfer");
+    }
+}
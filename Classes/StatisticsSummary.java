@@ -0,0 +1,102 @@
+public final class StatisticsSummary {
+
+    private static final StatisticsSummary EMPTY =
+            new StatisticsSummary(0, 0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NaN, 0);
+
+    private final long count;
+    private final double sum;
+    private final double sumCompensation; // Low-order bits lost by sum (Neumaier)
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double m2; // Sum of squared deviations from the mean (Welford)
+
+    StatisticsSummary(long count, double sum, double sumCompensation, double min, double max, double mean, double m2) {
+        this.count = count;
+        this.sum = sum;
+        this.sumCompensation = sumCompensation;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    public static StatisticsSummary empty() {
+        return EMPTY;
+    }
+
+    // The arithmetic lives in StreamingStatistics so the batch and streaming paths cannot drift apart
+    public static StatisticsSummary of(double[] values, int from, int to) {
+        if (from >= to) {
+            return EMPTY;
+        }
+        return new StreamingStatistics().accept(values, from, to).snapshot();
+    }
+
+    // Combines two disjoint partial summaries
+    public StatisticsSummary merge(StatisticsSummary other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        return new StreamingStatistics(this).merge(other).snapshot();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // Raw state for StreamingStatistics
+    double rawSum() {
+        return sum;
+    }
+
+    double sumCompensation() {
+        return sumCompensation;
+    }
+
+    double rawMean() {
+        return mean;
+    }
+
+    double m2() {
+        return m2;
+    }
+
+    public double getSum() {
+        return sum + sumCompensation;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : getSum() / count;
+    }
+
+    // Population variance
+    public double getVariance() {
+        return count == 0 ? Double.NaN : m2 / count;
+    }
+
+    public double getSampleVariance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    @Override
+    public String toString() {
+        return "StatisticsSummary{count=" + count + ", sum=" + getSum() + ", min=" + min + ", max=" + max
+                + ", mean=" + getMean() + ", stddev=" + getStandardDeviation() + "}";
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+public class StatisticsTask extends RecursiveTask<StatisticsSummary> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double[] values;
+    private final int from;
+    private final int to;
+    private final int threshold;
+    private final ForkJoinTask<?> root; // Subtasks stop once the task that was submitted is cancelled
+
+    public StatisticsTask(double[] values, int threshold) {
+        this(values, 0, values.length, threshold);
+    }
+
+    public StatisticsTask(double[] values, int from, int to, int threshold) {
+        this(values, from, to, threshold, null);
+    }
+
+    private StatisticsTask(double[] values, int from, int to, int threshold, ForkJoinTask<?> root) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+        }
+        this.values = values;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+        this.root = root != null ? root : this;
+    }
+
+    @Override
+    protected StatisticsSummary compute() {
+        if (root.isCancelled()) {
+            throw new CancellationException();
+        }
+        if (to - from <= threshold) {
+            return StatisticsSummary.of(values, from, to);
+        }
+        int middle = (from + to) >>> 1;
+        StatisticsTask left = new StatisticsTask(values, from, middle, threshold, root);
+        StatisticsTask right = new StatisticsTask(values, middle, to, threshold, root);
+        left.fork();
+        StatisticsSummary rightSummary = right.compute();
+        return left.join().merge(rightSummary);
+    }
+}
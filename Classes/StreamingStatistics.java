@@ -0,0 +1,175 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+
+// Constant-memory running statistics; not thread-safe, use one per shard and merge().
+// This is the one accumulator behind StatisticsSummary too: Neumaier-compensated sum, Welford updates
+// for the variance and Chan's formula when merging.
+public class StreamingStatistics implements DoubleConsumer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private long count;
+    private double sum;
+    private double sumCompensation;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double mean;
+    private double m2;
+
+    public StreamingStatistics() {
+    }
+
+    StreamingStatistics(StatisticsSummary summary) {
+        merge(summary);
+    }
+
+    public static StreamingStatistics of(DoubleStream values) {
+        return values.collect(StreamingStatistics::new, StreamingStatistics::accept, StreamingStatistics::merge);
+    }
+
+    @Override
+    public void accept(double value) {
+        addToSum(value);
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    // Same updates as accept(double), kept in locals for the duration of the loop
+    public StreamingStatistics accept(double[] values, int from, int to) {
+        long n = count;
+        double sum = this.sum;
+        double compensation = sumCompensation;
+        double min = this.min;
+        double max = this.max;
+        double mean = this.mean;
+        double m2 = this.m2;
+        for (int i = from; i < to; i++) {
+            double value = values[i];
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+            n++;
+            double delta = value - mean;
+            mean += delta / n;
+            m2 += delta * (value - mean);
+        }
+        count = n;
+        this.sum = sum;
+        sumCompensation = compensation;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.m2 = m2;
+        return this;
+    }
+
+    // Reads big-endian doubles until end of stream
+    public StreamingStatistics acceptAll(ReadableByteChannel channel) throws IOException {
+        return acceptAll(channel, 0, null);
+    }
+
+    // Hands the listener a snapshot after every snapshotEvery values
+    public StreamingStatistics acceptAll(ReadableByteChannel channel, long snapshotEvery,
+                                         Consumer<StatisticsSummary> listener) throws IOException {
+        if (listener != null && snapshotEvery <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotEvery);
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long sinceSnapshot = 0;
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            while (buffer.remaining() >= Double.BYTES) {
+                accept(buffer.getDouble());
+                if (listener != null && ++sinceSnapshot == snapshotEvery) {
+                    listener.accept(snapshot());
+                    sinceSnapshot = 0;
+                }
+            }
+            buffer.compact();
+        }
+        if (buffer.position() != 0) {
+            throw new EOFException("Trailing " + buffer.position() + " bytes do not form a double");
+        }
+        return this;
+    }
+
+    public StreamingStatistics merge(StreamingStatistics other) {
+        return merge(other.count, other.sum, other.sumCompensation, other.min, other.max, other.mean, other.m2);
+    }
+
+    public StreamingStatistics merge(StatisticsSummary other) {
+        return merge(other.getCount(), other.rawSum(), other.sumCompensation(), other.getMin(), other.getMax(),
+                other.rawMean(), other.m2());
+    }
+
+    private StreamingStatistics merge(long otherCount, double otherSum, double otherCompensation,
+                                      double otherMin, double otherMax, double otherMean, double otherM2) {
+        if (otherCount == 0) {
+            return this;
+        }
+        if (count == 0) {
+            count = otherCount;
+            sum = otherSum;
+            sumCompensation = otherCompensation;
+            min = otherMin;
+            max = otherMax;
+            mean = otherMean;
+            m2 = otherM2;
+            return this;
+        }
+        long n = count + otherCount;
+        double delta = otherMean - mean;
+        m2 += otherM2 + delta * delta * ((double) count * otherCount / n);
+        mean += delta * otherCount / n;
+        count = n;
+        addToSum(otherSum);
+        sumCompensation += otherCompensation;
+        min = Math.min(min, otherMin);
+        max = Math.max(max, otherMax);
+        return this;
+    }
+
+    public StatisticsSummary snapshot() {
+        if (count == 0) {
+            return StatisticsSummary.empty();
+        }
+        return new StatisticsSummary(count, sum, sumCompensation, min, max, mean, m2);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    private void addToSum(double value) {
+        double t = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            sumCompensation += (sum - t) + value;
+        } else {
+            sumCompensation += (value - t) + sum;
+        }
+        sum = t;
+    }
+}
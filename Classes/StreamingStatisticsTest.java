@@ -0,0 +1,85 @@
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.DoubleStream;
+
+public class StreamingStatisticsTest {
+
+    public static void test() throws IOException {
+        testScalarAndRangeAgree();
+        testCompensatedSum();
+        testMergeShards();
+        testChannel();
+        testEmpty();
+    }
+
+    private static void testScalarAndRangeAgree() {
+        double[] values = ParallelProcessingTest.randomValues(10_000);
+        StreamingStatistics scalar = new StreamingStatistics();
+        for (double value : values) {
+            scalar.accept(value);
+        }
+        StatisticsSummary range = new StreamingStatistics().accept(values, 0, values.length).snapshot();
+        ParallelProcessingTest.checkSummary(range, scalar.snapshot(), "scalar accept");
+        ParallelProcessingTest.checkSummary(range, StatisticsSummary.of(values, 0, values.length), "summary");
+        StreamingStatistics collected = StreamingStatistics.of(DoubleStream.of(values).parallel());
+        ParallelProcessingTest.checkSummary(range, collected.snapshot(), "parallel stream");
+    }
+
+    // A plain running sum loses the 1 entirely
+    private static void testCompensatedSum() {
+        StreamingStatistics statistics = new StreamingStatistics();
+        statistics.accept(1e16);
+        statistics.accept(1);
+        statistics.accept(-1e16);
+        StatisticsSummary summary = statistics.snapshot();
+        TestSupport.check(summary.getSum() == 1, "compensated sum " + summary.getSum());
+        TestSupport.check(summary.getMin() == -1e16 && summary.getMax() == 1e16, "min/max " + summary);
+    }
+
+    private static void testMergeShards() {
+        double[] values = ParallelProcessingTest.randomValues(9_000);
+        StatisticsSummary expected = StatisticsSummary.of(values, 0, values.length);
+        StreamingStatistics merged = new StreamingStatistics();
+        merged.merge(new StreamingStatistics());
+        merged.merge(new StreamingStatistics().accept(values, 0, 1_000));
+        merged.merge(StatisticsSummary.of(values, 1_000, 5_000));
+        merged.merge(new StreamingStatistics().accept(values, 5_000, 9_000));
+        ParallelProcessingTest.checkSummary(expected, merged.snapshot(), "merged shards");
+        ParallelProcessingTest.checkSummary(expected,
+                StatisticsSummary.of(values, 0, 4_000).merge(StatisticsSummary.of(values, 4_000, 9_000)),
+                "merged summaries");
+    }
+
+    private static void testChannel() throws IOException {
+        double[] values = ParallelProcessingTest.randomValues(250);
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * Double.BYTES);
+        DoubleStream.of(values).forEach(bytes::putDouble);
+
+        List<Long> snapshots = new ArrayList<>();
+        StreamingStatistics statistics = new StreamingStatistics()
+                .acceptAll(channel(bytes.array()), 100, summary -> snapshots.add(summary.getCount()));
+        ParallelProcessingTest.checkSummary(StatisticsSummary.of(values, 0, values.length), statistics.snapshot(),
+                "channel");
+        TestSupport.check(List.of(100L, 200L).equals(snapshots), "snapshots at " + snapshots);
+
+        TestSupport.expect(IllegalArgumentException.class,
+                () -> new StreamingStatistics().acceptAll(channel(bytes.array()), 0, summary -> { }));
+        TestSupport.expect(EOFException.class, () -> new StreamingStatistics().acceptAll(channel(new byte[12])));
+    }
+
+    private static void testEmpty() {
+        StatisticsSummary empty = new StreamingStatistics().snapshot();
+        TestSupport.check(empty.getCount() == 0 && Double.isNaN(empty.getMean()), "empty snapshot " + empty);
+        TestSupport.check(StatisticsSummary.of(new double[3], 2, 2) == StatisticsSummary.empty(), "empty range");
+    }
+
+    private static ReadableByteChannel channel(byte[] bytes) {
+        return Channels.newChannel(new ByteArrayInputStream(bytes));
+    }
+}
@@ -1,40 +1,264 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class TaskQueue {
+public class TaskQueue<T> {
 
-    private static final TaskQueue instance = new TaskQueue();
-    private BlockingQueue<String> tasks = new LinkedBlockingQueue<>();
-    private WorkerThread workerThread;
+    public enum OverflowPolicy {
+        BLOCK,      // Producer waits for free capacity
+        DROP,       // Task is discarded and addTask returns false
+        CALLER_RUNS // Producer handles the task itself
+    }
+
+    public interface TaskHandler<T> {
+        void handle(T task) throws Exception;
+    }
+
+    // Receives up to maxBatchSize tasks at once; the list is reused, so copy anything kept past the call
+    public interface BatchHandler<T> {
+        void handleBatch(List<T> batch) throws Exception;
+    }
+
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final AtomicInteger queueCounter = new AtomicInteger();
+
+    private final BlockingQueue<T> tasks;
+    private final TaskHandler<T> handler;
+    private final BatchHandler<T> batchHandler;
+    private final int maxBatchSize;
+    private final long maxBatchWaitNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final List<WorkerThread> workers = new ArrayList<>();
+    private final AtomicInteger producersInFlight = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean accepting = true;
+    private volatile boolean stopped;
+
+    public TaskQueue(int workerCount, int capacity, OverflowPolicy overflowPolicy, TaskHandler<T> handler) {
+        this(workerCount, new ArrayBlockingQueue<>(capacity), overflowPolicy, handler);
+    }
+
+    // Accepts any bounded queue, e.g. a RingBufferQueue for allocation-free hand-off
+    public TaskQueue(int workerCount, BlockingQueue<T> tasks, OverflowPolicy overflowPolicy, TaskHandler<T> handler) {
+        this(workerCount, tasks, overflowPolicy, Objects.requireNonNull(handler, "handler"), null, 1, 0);
+    }
+
+    // Workers take whatever is queued up to maxBatchSize, waiting at most maxBatchWaitMicros to fill a batch
+    public TaskQueue(int workerCount, BlockingQueue<T> tasks, OverflowPolicy overflowPolicy,
+                     BatchHandler<T> batchHandler, int maxBatchSize, long maxBatchWaitMicros) {
+        this(workerCount, tasks, overflowPolicy, null, Objects.requireNonNull(batchHandler, "batchHandler"),
+                maxBatchSize, maxBatchWaitMicros);
+    }
+
+    private TaskQueue(int workerCount, BlockingQueue<T> tasks, OverflowPolicy overflowPolicy, TaskHandler<T> handler,
+                      BatchHandler<T> batchHandler, int maxBatchSize, long maxBatchWaitMicros) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+        }
+        if (maxBatchWaitMicros < 0) {
+            throw new IllegalArgumentException("Batch wait must not be negative: " + maxBatchWaitMicros);
+        }
+        this.tasks = Objects.requireNonNull(tasks, "tasks");
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+        this.handler = handler;
+        this.batchHandler = batchHandler;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxBatchWaitMicros);
+        int id = queueCounter.incrementAndGet();
+        for (int i = 0; i < workerCount; i++) {
+            WorkerThread worker = new WorkerThread("task-queue-" + id + "-worker-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    // Returns false only when the DROP policy discarded the task or a blocked producer was interrupted
+    public boolean addTask(T task) {
+        Objects.requireNonNull(task, "task");
+        producersInFlight.incrementAndGet();
+        try {
+            if (!accepting) {
+                throw new IllegalStateException("Task queue is shut down");
+            }
+            switch (overflowPolicy) {
+                case BLOCK:
+                    tasks.put(task);
+                    return true;
+                case DROP:
+                    if (tasks.offer(task)) {
+                        return true;
+                    }
+                    dropped.incrementAndGet();
+                    return false;
+                case CALLER_RUNS:
+                    if (!tasks.offer(task)) {
+                        processTask(task);
+                    }
+                    return true;
+                default:
+                    throw new IllegalStateException("Unknown overflow policy: " + overflowPolicy);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            producersInFlight.decrementAndGet();
+        }
+    }
+
+    // Stops accepting tasks; workers finish everything already queued and then exit
+    public void shutdown() {
+        accepting = false;
+    }
+
+    // Stops accepting tasks, interrupts workers and returns the tasks that never ran
+    public List<T> shutdownNow() {
+        accepting = false;
+        stopped = true;
+        for (WorkerThread worker : workers) {
+            worker.interrupt();
+        }
+        List<T> remaining = new ArrayList<>();
+        tasks.drainTo(remaining);
+        return remaining;
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (WorkerThread worker : workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return !worker.isAlive() && isTerminated();
+            }
+            TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+        }
+        return isTerminated();
+    }
+
+    public boolean isTerminated() {
+        for (WorkerThread worker : workers) {
+            if (worker.isAlive()) {
+                return false;
+            }
+        }
+        return !accepting;
+    }
+
+    public int size() {
+        return tasks.size();
+    }
+
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
 
-    private TaskQueue() {
-        workerThread = new WorkerThread();
-        workerThread.start();
+    public long getDroppedCount() {
+        return dropped.get();
     }
 
-    public static TaskQueue getInstance() {
-        return instance;
+    private boolean drained() {
+        return !accepting && producersInFlight.get() == 0 && tasks.isEmpty();
     }
 
-    public void addTask(String task) {
-        tasks.add(task);
+    private void processTask(T task) {
+        if (batchHandler != null) {
+            processBatch(Collections.singletonList(task));
+            return;
+        }
+        try {
+            handler.handle(task);
+            processed.incrementAndGet();
+        } catch (InterruptedException e) {
+            failed.incrementAndGet();
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            e.printStackTrace();
+        }
+    }
+
+    private void processBatch(List<T> batch) {
+        try {
+            batchHandler.handleBatch(batch);
+            processed.addAndGet(batch.size());
+        } catch (InterruptedException e) {
+            failed.addAndGet(batch.size());
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            e.printStackTrace();
+        }
     }
 
     private class WorkerThread extends Thread {
+
+        private final List<T> batch = new ArrayList<>();
+
+        WorkerThread(String name) {
+            super(name);
+        }
+
         @Override
         public void run() {
-            while (true) {
+            while (!stopped && !drained()) {
                 try {
-                    String task = tasks.take(); // Blocking wait
-                    processTask(task);
+                    T task = tasks.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (task != null && batchHandler == null) {
+                        processTask(task);
+                    } else if (task != null) {
+                        batch.add(task);
+                        fillBatch();
+                        processBatch(batch);
+                        batch.clear();
+                    }
                 } catch (InterruptedException e) {
-                    e.printStackTrace();
+                    // Only shutdownNow() interrupts workers; the loop condition decides whether to exit
+                }
+                if (Thread.interrupted() && stopped) {
+                    return;
                 }
             }
         }
 
-        private void processTask(String task) {
-            // Implement task processing logic
+        private void fillBatch() {
+            tasks.drainTo(batch, maxBatchSize - batch.size());
+            if (maxBatchWaitNanos == 0) {
+                return;
+            }
+            long deadline = System.nanoTime() + maxBatchWaitNanos;
+            try {
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !accepting) {
+                        return; // After shutdown nothing more can arrive, so stop waiting
+                    }
+                    // Waits in slices so a shutdown during a long batch wait is noticed promptly
+                    T task = tasks.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(IDLE_POLL_MILLIS)),
+                            TimeUnit.NANOSECONDS);
+                    if (task != null) {
+                        batch.add(task);
+                        tasks.drainTo(batch, maxBatchSize - batch.size());
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Hand over what was collected; the run loop sees the interrupt afterwards
+                Thread.currentThread().interrupt();
+            }
         }
     }
 }
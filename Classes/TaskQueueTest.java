@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TaskQueueTest {
+
+    public static void test() throws Exception {
+        testWorkersProcessEverything();
+        testBlockPolicyAppliesBackpressure();
+        testDropPolicy();
+        testCallerRunsPolicy();
+        testFailuresAreCounted();
+        testGracefulShutdown();
+        testShutdownNow();
+        testBatchesRespectMaxSize();
+        testBatchWaitFillsBatches();
+    }
+
+    private static void testWorkersProcessEverything() throws Exception {
+        Set<String> workers = ConcurrentHashMap.newKeySet();
+        AtomicLong sum = new AtomicLong();
+        TaskQueue<Integer> queue = new TaskQueue<>(3, 16, TaskQueue.OverflowPolicy.BLOCK, task -> {
+            workers.add(Thread.currentThread().getName());
+            sum.addAndGet(task);
+        });
+        TestSupport.runConcurrently(2, () -> {
+            for (int i = 1; i <= 5_000; i++) {
+                queue.addTask(i);
+            }
+        });
+        queue.shutdown();
+        TestSupport.check(queue.awaitTermination(10, TimeUnit.SECONDS), "queue terminates");
+        TestSupport.check(sum.get() == 2 * 5_000L * 5_001 / 2, "every task handled once: " + sum.get());
+        TestSupport.check(queue.getProcessedCount() == 10_000, "processed " + queue.getProcessedCount());
+        TestSupport.check(workers.stream().allMatch(name -> name.startsWith("task-queue-")),
+                "named workers " + workers);
+    }
+
+    // With the only worker stuck and the queue full, a BLOCK producer waits until there is room
+    private static void testBlockPolicyAppliesBackpressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TaskQueue<Integer> queue = new TaskQueue<>(1, 1, TaskQueue.OverflowPolicy.BLOCK, task -> release.await());
+        queue.addTask(1);
+        waitUntil(() -> queue.size() == 0); // Worker took it and is now stuck
+        queue.addTask(2);
+        Thread producer = new Thread(() -> queue.addTask(3));
+        producer.start();
+        waitUntil(() -> producer.getState() == Thread.State.WAITING
+                || producer.getState() == Thread.State.TIMED_WAITING);
+        TestSupport.check(producer.isAlive(), "producer is blocked while the queue is full");
+        release.countDown();
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+        TestSupport.check(!producer.isAlive(), "producer continues once there is room");
+        queue.shutdown();
+        TestSupport.check(queue.awaitTermination(10, TimeUnit.SECONDS) && queue.getProcessedCount() == 3,
+                "all three tasks processed");
+    }
+
+    private static void testDropPolicy() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TaskQueue<Integer> queue = new TaskQueue<>(1, 1, TaskQueue.OverflowPolicy.DROP, task -> release.await());
+        queue.addTask(1);
+        waitUntil(() -> queue.size() == 0);
+        TestSupport.check(queue.addTask(2), "room for one more");
+        TestSupport.check(!queue.addTask(3) && queue.getDroppedCount() == 1, "full queue drops the task");
+        release.countDown();
+        queue.shutdown();
+        TestSupport.check(queue.awaitTermination(10, TimeUnit.SECONDS) && queue.getProcessedCount() == 2,
+                "dropped task never runs");
+    }
+
+    private static void testCallerRunsPolicy() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> ranOn = Collections.synchronizedList(new ArrayList<>());
+        TaskQueue<Integer> queue = new TaskQueue<>(1, 1, TaskQueue.OverflowPolicy.CALLER_RUNS, task -> {
+            ranOn.add(Thread.currentThread().getName());
+            if (task == 1) {
+                release.await();
+            }
+        });
+        queue.addTask(1);
+        waitUntil(() -> queue.size() == 0);
+        queue.addTask(2);
+        queue.addTask(3); // No room: runs right here
+        TestSupport.check(ranOn.contains(Thread.currentThread().getName()), "overflow ran on the caller: " + ranOn);
+        release.countDown();
+        queue.shutdown();
+        TestSupport.check(queue.awaitTermination(10, TimeUnit.SECONDS) && queue.getProcessedCount() == 3,
+                "processed " + queue.getProcessedCount());
+    }
+
+    private static void testFailuresAreCounted() throws Exception {
+        TaskQueue<Integer> queue = new TaskQueue<>(2, 8, TaskQueue.OverflowPolicy.BLOCK, task -> {
+            if (task % 2 == 0) {
+                throw new IllegalStateException("Expected test failure for task " + task);
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            queue.addTask(i);
+        }
+        queue.shutdown();
+        TestSupport.check(queue.awaitTermination(10, TimeUnit.SECONDS), "queue terminates");
+        TestSupport.check(queue.getProcessedCount() == 5 && queue.getFailedCount() == 5,
+                "processed " + queue.getProcessedCount() + ", failed " + queue.getFailedCount());
+    }
+
+    // shutdown() finishes what is queued and rejects anything new
+    private static void testGracefulShutdown() throws Exception {
+        AtomicInteger handled = new AtomicInteger();
+        TaskQueue<Integer> queue = new TaskQueue<>(1, 100, TaskQueue.OverflowPolicy.BLOCK, task -> {
+            Thread.sleep(1);
+            handled.incrementAndGet();
+        });
+        for (int i = 0; i < 50; i++) {
+            queue.addTask(i);
+        }
+        queue.shutdown();
+        TestSupport.expect(IllegalStateException.class, () -> queue.addTask(99));
+        TestSupport.check(queue.awaitTermination(10, TimeUnit.SECONDS), "queue terminates");
+        TestSupport.check(handled.get() == 50 && queue.isTerminated(), "queued tasks finished: " + handled.get());
+    }
+
+    private static void testShutdownNow() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        TaskQueue<Integer> queue = new TaskQueue<>(1, 100, TaskQueue.OverflowPolicy.BLOCK, task -> {
+            started.countDown();
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1)); // Only an interrupt ends this
+        });
+        for (int i = 0; i < 10; i++) {
+            queue.addTask(i);
+        }
+        started.await();
+        List<Integer> remaining = queue.shutdownNow();
+        TestSupport.check(remaining.size() == 9, "tasks that never ran: " + remaining);
+        TestSupport.check(queue.awaitTermination(10, TimeUnit.SECONDS), "interrupted worker exits");
+        TestSupport.check(queue.getFailedCount() == 1, "interrupted task counts as failed");
+    }
+
+    // Tasks that queue up behind a slow batch arrive in batches of at most maxBatchSize
+    private static void testBatchesRespectMaxSize() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong sum = new AtomicLong();
+        TaskQueue<Integer> queue = new TaskQueue<>(1, new RingBufferQueue<>(128), TaskQueue.OverflowPolicy.BLOCK,
+                batch -> {
+                    release.await();
+                    batchSizes.add(batch.size());
+                    for (int task : batch) {
+                        sum.addAndGet(task);
+                    }
+                }, 16, 0);
+        queue.addTask(0);
+        waitUntil(() -> queue.size() == 0);
+        for (int i = 1; i <= 100; i++) {
+            queue.addTask(i);
+        }
+        release.countDown();
+        queue.shutdown();
+        TestSupport.check(queue.awaitTermination(10, TimeUnit.SECONDS), "queue terminates");
+        TestSupport.check(sum.get() == 5_050 && queue.getProcessedCount() == 101, "every task in some batch");
+        TestSupport.check(batchSizes.stream().allMatch(size -> size >= 1 && size <= 16), "batch sizes " + batchSizes);
+        TestSupport.check(batchSizes.contains(16), "backlog is drained in full batches: " + batchSizes);
+    }
+
+    // With a batch wait the worker holds the first task until more arrive or the wait runs out
+    private static void testBatchWaitFillsBatches() throws Exception {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        TaskQueue<Integer> queue = new TaskQueue<>(1, new RingBufferQueue<>(16), TaskQueue.OverflowPolicy.BLOCK,
+                batch -> batchSizes.add(batch.size()), 4, TimeUnit.SECONDS.toMicros(5));
+        queue.addTask(1);
+        Thread.sleep(20);
+        for (int i = 2; i <= 4; i++) {
+            queue.addTask(i);
+        }
+        waitUntil(() -> queue.getProcessedCount() == 4);
+        TestSupport.check(List.of(4).equals(batchSizes), "one full batch: " + batchSizes);
+
+        queue.addTask(5); // A partial batch is handed over on shutdown, not held for the full wait
+        waitUntil(() -> queue.size() == 0);
+        queue.shutdown();
+        TestSupport.check(queue.awaitTermination(1, TimeUnit.SECONDS) && queue.getProcessedCount() == 5,
+                "partial batch processed promptly after shutdown");
+    }
+
+    interface Condition {
+        boolean holds();
+    }
+
+    static void waitUntil(Condition condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.holds()) {
+            TestSupport.check(System.nanoTime() < deadline, "condition not reached in time");
+            Thread.sleep(1);
+        }
+    }
+}
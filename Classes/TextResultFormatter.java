@@ -1,7 +1,10 @@
+import java.io.IOException;
+
 public class TextResultFormatter extends ResultFormatter {
 
     @Override
-    public String formatResult(CalculationResult result) {
-        return "Type: " + result.getType() + ", Value: " + result.getValue();
+    public void formatResult(CalculationResult result, Appendable out) throws IOException {
+        out.append("Type: ").append(result.getType()).append(", Value: ");
+        DoubleFormat.append(out, result.getValue());
     }
 }
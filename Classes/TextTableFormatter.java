@@ -1,22 +1,39 @@
+import java.io.IOException;
+
 public class TextTableFormatter extends ResultFormatter {
-    private int columnWidth = 15; // Default column width
+    private final int columnWidth;
+    private final String lineSeparator; // Separator and header are built once and reused for every result
+    private final String header;
 
     // Constructor for customization
     public TextTableFormatter(int columnWidth) {
+        if (columnWidth <= 0) {
+            throw new IllegalArgumentException("Column width must be positive: " + columnWidth);
+        }
         this.columnWidth = columnWidth;
+        String dashes = "-".repeat(columnWidth + 2);
+        this.lineSeparator = "+" + dashes + "+" + dashes + "+\n";
+        StringBuilder sb = new StringBuilder(lineSeparator);
+        sb.append("| Type").append(" ".repeat(Math.max(0, columnWidth - 4))).append(" | Value")
+                .append(" ".repeat(Math.max(0, columnWidth - 5))).append(" |\n");
+        this.header = sb.append(lineSeparator).toString();
     }
 
+    // Cells are left-aligned and padded to the column width; longer text is not cut
     @Override
-    public String formatResult(CalculationResult result) {
-        StringBuilder sb = new StringBuilder();
-        String headerFormat = "| %-" + columnWidth + "s | %-" + columnWidth + "s |\n";
-        String lineSeparator = String.format("+%s+%-s+\n", "-".repeat(columnWidth), "-".repeat(columnWidth));
+    public void formatResult(CalculationResult result, Appendable out) throws IOException {
+        String type = String.valueOf(result.getType());
+        out.append(header).append("| ").append(type);
+        pad(out, columnWidth - type.length());
+        out.append(" | ");
+        DoubleFormat.append(out, result.getValue());
+        pad(out, columnWidth - DoubleFormat.length(result.getValue()));
+        out.append(" |\n").append(lineSeparator);
+    }
 
-        sb.append(lineSeparator);
-        sb.append(String.format(headerFormat, "Type", "Value"));
-        sb.append(lineSeparator);
-        sb.append(String.format(headerFormat, result.getType(), result.getValue()));
-        sb.append(lineSeparator);
-        return sb.toString();
+    private static void pad(Appendable out, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.append(' ');
+        }
     }
 }
@@ -0,0 +1,24 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.util.OptionalDouble;
+
+// Undo history behind a Calculator. CommandHistory keeps the newest capacity() entries and
+// ConcurrentCommandHistory between capacity() and 2 * capacity() - 1; older entries are evicted and
+// can no longer be undone, but are written to the spill file if one is set.
+// flush() and close() push spilled lines to disk.
+public interface UndoHistory extends Closeable, Flushable {
+
+    void add(Command command);
+
+    // Records an arithmetic operation without creating a command object
+    void add(Operation operation, double a, double b, double result);
+
+    // The result of the undone entry; empty if there is none or it cannot be undone. NaN is a valid result
+    OptionalDouble undo();
+
+    boolean canUndo();
+
+    int size();
+
+    int capacity();
+}
@@ -1,4 +1,5 @@
 public abstract class UndoableCommand extends Command {
 
-    public abstract void undo();
+    // Returns the result of the command being undone
+    public abstract double undo();
 }